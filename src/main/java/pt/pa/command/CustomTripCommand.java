@@ -1,13 +1,26 @@
 package pt.pa.command;
+import pt.pa.model.Stop;
+import pt.pa.model.TransportSet;
 import pt.pa.model.TransportsMap.RouteInfo;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * Command for custom trip
+ * Command for custom trip.
+ * The legs are independent, so they are calculated in parallel and joined in stop order.
+ * Legs with the same origin run in the same task, one after another, so repeated legs are only
+ * calculated once and the others are answered from the search tree of that origin.
+ * The UI uses executeAsync, so it doesn't wait for the legs
  * @author Rodrigo Santos - 202100722,
   * João Fernandes - 202100718,
   * Rúben Dâmaso - 202100723
@@ -15,6 +28,13 @@ import java.util.Queue;
   * [PL2 - Prof. André Sanguinetti]
  */
 public class CustomTripCommand implements Command {
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "custom-trip");
+                thread.setDaemon(true);
+                return thread;
+            });
+
     Queue<TripCommand> tripCommands;
 
     /**
@@ -27,11 +47,61 @@ public class CustomTripCommand implements Command {
 
     @Override
     public List<RouteInfo> execute() {
-        List<RouteInfo> routeInfos = new ArrayList<>();
+        try {
+            return executeAsync().join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Calculates the legs in worker threads without waiting for them
+     * @return CompletableFuture completed with the RouteInfo objects of every leg, in stop order,
+     * or completed exceptionally with the exception of a failed leg
+     */
+    public CompletableFuture<List<RouteInfo>> executeAsync() {
+        Map<Stop, List<TripCommand>> origins = new LinkedHashMap<>();
         for(TripCommand tripCommand : tripCommands) {
-            routeInfos.addAll(tripCommand.execute());
+            origins.computeIfAbsent(tripCommand.getStart(), start -> new ArrayList<>()).add(tripCommand);
+        }
+
+        Map<Stop, CompletableFuture<Map<Leg, List<RouteInfo>>>> results = new HashMap<>();
+        for(Map.Entry<Stop, List<TripCommand>> origin : origins.entrySet()) {
+            results.put(origin.getKey(), CompletableFuture.supplyAsync(() -> executeLegs(origin.getValue()), EXECUTOR));
+        }
+
+        return CompletableFuture.allOf(results.values().toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<RouteInfo> routeInfos = new ArrayList<>();
+            for(TripCommand tripCommand : tripCommands) {
+                routeInfos.addAll(results.get(tripCommand.getStart()).join().get(Leg.of(tripCommand)));
+            }
+
+            return routeInfos;
+        });
+    }
+
+    /**
+     * Executes the legs of an origin, skipping the repeated ones
+     */
+    private static Map<Leg, List<RouteInfo>> executeLegs(List<TripCommand> legs) {
+        Map<Leg, List<RouteInfo>> results = new HashMap<>();
+        for(TripCommand tripCommand : legs) {
+            Leg leg = Leg.of(tripCommand);
+            if(!results.containsKey(leg)) {
+                results.put(leg, tripCommand.execute());
+            }
         }
 
-        return routeInfos;
+        return results;
+    }
+
+    /**
+     * Destination and options of a leg, used to find repeated legs of the same origin
+     */
+    private record Leg(Stop end, String criterion, TransportSet transports) {
+        private static Leg of(TripCommand tripCommand) {
+            return new Leg(tripCommand.getEnd(), tripCommand.getCriterion(), tripCommand.getTransports());
+        }
     }
 }
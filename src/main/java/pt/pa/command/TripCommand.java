@@ -2,7 +2,7 @@ package pt.pa.command;
 
 import pt.pa.controller.MapController;
 import pt.pa.model.Stop;
-import pt.pa.model.Transport;
+import pt.pa.model.TransportSet;
 import pt.pa.model.TransportsMap.RouteInfo;
 
 import java.util.List;
@@ -20,17 +20,17 @@ public class TripCommand implements Command {
     private final Stop start;
     private final Stop end;
     private final String criterion;
-    private final List<Transport> transports;
+    private final TransportSet transports;
 
     /**
      * TripCommand constructor
      * @param start Start Stop
      * @param end End Stop
      * @param criterion Criterion
-     * @param transports List of transports
+     * @param transports Set of transports
      * @param controller MapController
      */
-    public TripCommand(Stop start, Stop end, String criterion, List<Transport> transports, MapController controller) {
+    public TripCommand(Stop start, Stop end, String criterion, TransportSet transports, MapController controller) {
         this.controller = controller;
         this.start = start;
         this.end = end;
@@ -38,6 +38,38 @@ public class TripCommand implements Command {
         this.transports = transports;
     }
 
+    /**
+     * Gets the start stop of the trip
+     * @return Stop object
+     */
+    public Stop getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the end stop of the trip
+     * @return Stop object
+     */
+    public Stop getEnd() {
+        return end;
+    }
+
+    /**
+     * Gets the criterion of the trip
+     * @return Criterion name
+     */
+    public String getCriterion() {
+        return criterion;
+    }
+
+    /**
+     * Gets the transports of the trip
+     * @return Set of transports
+     */
+    public TransportSet getTransports() {
+        return transports;
+    }
+
     @Override
     public List<RouteInfo> execute() {
         return controller.calculateRouteFromCommand(
@@ -2,6 +2,7 @@ package pt.pa.controller;
 
 import com.brunomnsilva.smartgraph.graph.Edge;
 import com.brunomnsilva.smartgraph.graph.Vertex;
+import javafx.application.Platform;
 import javafx.scene.control.Alert;
 import pt.pa.command.CustomTripCommand;
 import pt.pa.command.TripCommand;
@@ -9,15 +10,20 @@ import pt.pa.memento.Memento;
 import pt.pa.model.Route;
 import pt.pa.model.Stop;
 import pt.pa.model.Transport;
+import pt.pa.model.TransportSet;
 import pt.pa.model.TransportsMap;
 import pt.pa.model.TransportsMap.RouteInfo;
+import pt.pa.routing.SearchMode;
 import pt.pa.strategy.DistanceRouteStrategy;
 import pt.pa.strategy.DurationRouteStrategy;
+import pt.pa.strategy.RouteStrategy;
 import pt.pa.strategy.SustainabilityRouteStrategy;
 import pt.pa.utils.UIUtil;
 import pt.pa.view.MapView;
 
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 import java.util.logging.FileHandler;
 import java.util.logging.Logger;
@@ -73,8 +79,9 @@ public class MapController {
      * @return HashMap containing the stops centrality data
      */
     public Map<String, Integer> doGetCentrality(){
-        LOGGER.info("Centralidade solicitada: " + model.stopsCentrality());
-        return model.stopsCentrality();
+        Map<String, Integer> centrality = model.stopsCentrality();
+        LOGGER.info("Centralidade solicitada: " + centrality);
+        return centrality;
     }
 
     /**
@@ -154,36 +161,70 @@ public class MapController {
     }
 
     /**
-     * Executes the calculation of a custom route
-     * @return List containing RouteInfo objects
+     * Returns the names of the stops that match a typed text, ignoring case and accents
+     * @param prefix Typed text
+     * @param limit Maximum number of names
+     * @return List containing the matching stop names
+     */
+    public List<String> doFindStopNames(String prefix, int limit) {
+        return model.findStopNames(prefix, limit);
+    }
+
+    /**
+     * Executes the calculation of a custom route. The legs are calculated in worker threads and the
+     * result is handed back in the UI thread; a leg without a route is shown as an error
+     * @param onResult Receives the RouteInfo objects of the whole trip
      */
-    public List<RouteInfo> doCalculateCustomRoute(){
+    public void doCalculateCustomRoute(Consumer<List<RouteInfo>> onResult){
         List<TripCommand> tripCommands = new ArrayList<>();
 
         Stack<Stop> customTripStops = view.getCustomTripStops();
 
         String criterion = view.getCustomTripCriterion();
 
+        // The legs run in worker threads, so everything is checked and reported here, in the UI thread
+        if(criterion == null) {
+            view.showError("Selecione um critério.");
+            LOGGER.severe("Critério não selecionado");
+            return;
+        }
+
+        for(Stop stop : customTripStops) {
+            if(model.getStopByName(stop.getName()) == null) {
+                view.showError("Paragem não encontrada: " + stop.getName());
+                LOGGER.severe("Paragem não encontrada: " + stop.getName());
+                return;
+            }
+        }
+
         for(int i = 0; i < customTripStops.size() - 1; i++){
             Stop start = customTripStops.get(i);
             Stop end = customTripStops.get(i + 1);
 
-            List<Transport> allTransports = new ArrayList<>(List.of(Transport.values()));
-
-            TripCommand tripCommand = new TripCommand(start, end, criterion, allTransports, this);
+            TripCommand tripCommand = new TripCommand(start, end, criterion, TransportSet.all(), this);
             tripCommands.add(tripCommand);
         }
 
         CustomTripCommand customTripCommand = new CustomTripCommand(tripCommands);
 
-        return customTripCommand.execute();
+        // The result is posted back to the UI thread, which stays free while the legs are calculated
+        customTripCommand.executeAsync().whenComplete((routeInfos, error) -> Platform.runLater(() -> {
+            if(error == null) {
+                onResult.accept(routeInfos);
+                return;
+            }
+
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            view.showError(cause.getMessage());
+            LOGGER.severe("Erro no cálculo da viagem: " + cause.getMessage());
+        }));
     }
 
     /**
      * Executes the calculation of a route between two stops
      * @return List of RouteInfo objects containing the route information
      */
-    private List<RouteInfo> calculateRoute(String startStopName, String endStopName, String criterion, List<Transport> transports) {
+    private List<RouteInfo> calculateRoute(String startStopName, String endStopName, String criterion, TransportSet transports) {
 
         if(criterion == null) {
             view.showError("Selecione um critério.");
@@ -191,13 +232,6 @@ public class MapController {
             return null;
         }
 
-        switch (criterion) {
-            case "Distância" -> model.setRouteStrategy(new DistanceRouteStrategy());
-            case "Duração" -> model.setRouteStrategy(new DurationRouteStrategy());
-            case "Sustentabilidade" -> model.setRouteStrategy(new SustainabilityRouteStrategy());
-            default -> throw new IllegalArgumentException("Critério inválido: " + criterion);
-        }
-
         Stop start = model.getStopByName(startStopName);
         Stop end = model.getStopByName(endStopName);
 
@@ -219,27 +253,35 @@ public class MapController {
             return null;
         }
 
-        Map<Stop, RouteInfo> result = model.calculateRoute(start, transports);
-
-        RouteInfo routeInfoTemp = result.get(end);
+        List<RouteInfo> routeInfos = findRoute(start, end, criterion, transports);
 
-        if (routeInfoTemp.cameFrom() == null) {
-            return null;
-        }
+        return routeInfos.isEmpty() ? null : routeInfos;
+    }
 
-        List<RouteInfo> routeInfos = new ArrayList<>();
+    /**
+     * Calculates a route between two stops without touching the view, so it can run outside the UI thread
+     * @param start Start Stop
+     * @param end End Stop
+     * @param criterion Optimization criterion
+     * @param transports Set of transports
+     * @return List of RouteInfo objects containing the route information. Empty if there's no route
+     * @throws IllegalArgumentException If the criterion is invalid
+     */
+    private List<RouteInfo> findRoute(Stop start, Stop end, String criterion, TransportSet transports) {
+        // The strategy is passed to the query instead of being set on the shared model
+        RouteStrategy strategy = switch (criterion) {
+            case "Distância" -> new DistanceRouteStrategy(SearchMode.CONTRACTION_HIERARCHIES);
+            case "Duração" -> new DurationRouteStrategy(SearchMode.CONTRACTION_HIERARCHIES);
+            case "Sustentabilidade" -> new SustainabilityRouteStrategy(SearchMode.CONTRACTION_HIERARCHIES);
+            default -> throw new IllegalArgumentException("Critério inválido: " + criterion);
+        };
 
-        while (routeInfoTemp.cameFrom() != null) {
-            routeInfos.add(0, routeInfoTemp);
-            routeInfoTemp = result.get(routeInfoTemp.cameFrom());
-        }
+        List<RouteInfo> routeInfos = model.calculateRoute(start, end, transports, strategy);
 
-        for (RouteInfo ri : routeInfos) {
-            routeInfos.set(routeInfos.indexOf(ri), new RouteInfo(ri.cameFrom(), ri.arrivedAt(), ri.routeTaken(), ri.transportTaken(), ri.costToArrive() - ((routeInfos.indexOf(ri) + 1) * 5), ri.criterion()));
+        if(!routeInfos.isEmpty()) {
+            LOGGER.info("Cálculo de rota : De " + start.getName() + " para " + end.getName() + ", critério utilizado: " + criterion + ", cache: " + model.getRouteCache());
         }
 
-        LOGGER.info("Cálculo de rota : De " + start.getName() + " para " + end.getName() + ", critério utilizado: " + criterion);
-
         return routeInfos;
     }
 
@@ -251,21 +293,46 @@ public class MapController {
         String startStopName = view.getTripStart();
         String endStopName = view.getTripEnd();
         String criterion = view.getTripCriterion();
-        List<Transport> transports = view.getTripTransports();
+        TransportSet transports = TransportSet.of(view.getTripTransports());
 
         return calculateRoute(startStopName, endStopName, criterion, transports);
     }
 
     /**
-     * Executes the calculation of a route from a command
+     * Executes the calculation of a route from a command. It may run outside the UI thread, so the errors
+     * are thrown for the caller to report instead of being shown
      * @param startStop Start Stop
      * @param endStop End Stop
      * @param criterion Optimization criterion
-     * @param transports List of transports
+     * @param transports Set of transports
      * @return List containing RouteInfo objects
+     * @throws IllegalArgumentException If a stop isn't in the map, no transport is selected, the criterion is missing
+     * or invalid, or there's no route between the stops
      */
-    public List<RouteInfo> calculateRouteFromCommand(Stop startStop, Stop endStop, String criterion, List<Transport> transports) {
-        return calculateRoute(startStop.getName(), endStop.getName(), criterion, transports);
+    public List<RouteInfo> calculateRouteFromCommand(Stop startStop, Stop endStop, String criterion, TransportSet transports) {
+        if(criterion == null) {
+            throw new IllegalArgumentException("Selecione um critério.");
+        }
+
+        Stop start = model.getStopByName(startStop.getName());
+        Stop end = model.getStopByName(endStop.getName());
+
+        if(start == null) {
+            throw new IllegalArgumentException("Paragem de início não encontrada.");
+        }
+        if(end == null) {
+            throw new IllegalArgumentException("Paragem de fim não encontrada.");
+        }
+        if(transports.isEmpty()) {
+            throw new IllegalArgumentException("Selecione pelo menos um transporte.");
+        }
+
+        List<RouteInfo> routeInfos = findRoute(start, end, criterion, transports);
+        if(routeInfos.isEmpty() && !start.equals(end)) {
+            throw new IllegalArgumentException("Não existe rota entre " + start.getName() + " e " + end.getName() + ".");
+        }
+
+        return routeInfos;
     }
 
     /**
@@ -314,13 +381,7 @@ public class MapController {
     public List<Map.Entry<String, Integer>> doGetTop5Stops() {
         LOGGER.info("Top 5 paragens por centralidade solicitadas");
 
-        Map<String, Integer> centrality = doGetCentrality();
-
-        List<Map.Entry<String, Integer>> entryList = new ArrayList<>(centrality.entrySet());
-
-        entryList.sort((entry1, entry2) -> entry2.getValue().compareTo(entry1.getValue()));
-
-        return entryList.subList(0, Math.min(5, entryList.size()));
+        return model.topCentralStops(5);
     }
 
     /**
@@ -368,7 +429,7 @@ public class MapController {
      * @param newDuration The new duration for bicycles.
      */
     public void doUpdateBicycleDuration(Route route, Integer newDuration) {
-        if (route.getDurations().containsKey(Transport.BICYCLE)) {
+        if (route.hasDuration(Transport.BICYCLE)) {
             // Save the current state before updating
             bicycleDurationMementos.put(route, route.saveBicycleDuration());
 
@@ -0,0 +1,78 @@
+package pt.pa.model;
+
+/**
+ * Enumerator for the route optimization criteria
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public enum Criterion {
+    /**
+     * Distance criterion
+     */
+    DISTANCE,
+    /**
+     * Duration criterion
+     */
+    DURATION,
+    /**
+     * Sustainability criterion
+     */
+    SUSTAINABILITY;
+
+    /**
+     * Returns the string representation of the criterion
+     * @return String containing the criterion
+     */
+    @Override
+    public String toString() {
+        return switch (this) {
+            case DISTANCE -> "Distância";
+            case DURATION -> "Duração";
+            case SUSTAINABILITY -> "Sustentabilidade";
+        };
+    }
+
+    /**
+     * Returns the criterion from a string
+     * @param s String containing the criterion
+     * @return Criterion object. Null if the string is not a criterion
+     */
+    public static Criterion fromString(String s) {
+        if(s == null) return null;
+
+        return switch (s) {
+            case "Distância" -> DISTANCE;
+            case "Duração" -> DURATION;
+            case "Sustentabilidade" -> SUSTAINABILITY;
+            default -> null;
+        };
+    }
+
+    /**
+     * Returns the value of a route for this criterion
+     * @param route Route to get the value
+     * @param transport Transport type
+     * @return Float value. Null if the transport is not available on the route
+     */
+    public Float getValue(Route route, Transport transport) {
+        float value = getRawValue(route, transport);
+        return Float.isNaN(value) ? null : value;
+    }
+
+    /**
+     * Returns the value of a route for this criterion, without boxing
+     * @param route Route to get the value
+     * @param transport Transport type
+     * @return Float value. NaN if the transport is not available on the route
+     */
+    public float getRawValue(Route route, Transport transport) {
+        return switch (this) {
+            case DISTANCE -> route.getDistance(transport);
+            case DURATION -> route.getDuration(transport);
+            case SUSTAINABILITY -> route.getCost(transport);
+        };
+    }
+}
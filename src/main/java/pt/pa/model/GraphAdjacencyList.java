@@ -0,0 +1,349 @@
+package pt.pa.model;
+
+import com.brunomnsilva.smartgraph.graph.*;
+
+import java.util.*;
+
+/**
+ * Undirected graph backed by per-vertex incidence lists, so that neighbour
+ * lookups cost O(degree) instead of scanning every edge.
+ * Every method locks the graph, so it can be read while another thread changes it
+ * @param <V> Type of element stored at a vertex
+ * @param <E> Type of element stored at an edge
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public class GraphAdjacencyList<V, E> implements Graph<V, E> {
+    private final Map<V, MyVertex> vertices;
+    private final Map<E, MyEdge> edges;
+
+    /**
+     * GraphAdjacencyList constructor
+     */
+    public GraphAdjacencyList() {
+        this.vertices = new HashMap<>();
+        this.edges = new HashMap<>();
+    }
+
+    @Override
+    public synchronized int numVertices() {
+        return vertices.size();
+    }
+
+    @Override
+    public synchronized int numEdges() {
+        return edges.size();
+    }
+
+    @Override
+    public synchronized Collection<Vertex<V>> vertices() {
+        return new ArrayList<>(vertices.values());
+    }
+
+    @Override
+    public synchronized Collection<Edge<E, V>> edges() {
+        return new ArrayList<>(edges.values());
+    }
+
+    @Override
+    public synchronized Collection<Edge<E, V>> incidentEdges(Vertex<V> v) throws InvalidVertexException {
+        MyVertex vertex = checkVertex(v);
+
+        return new ArrayList<>(vertex.incidentEdges);
+    }
+
+    @Override
+    public synchronized Vertex<V> opposite(Vertex<V> v, Edge<E, V> e) throws InvalidVertexException, InvalidEdgeException {
+        checkVertex(v);
+        MyEdge edge = checkEdge(e);
+
+        if(!edge.contains(v)) {
+            return null;
+        }
+
+        return edge.vertexOutbound == v ? edge.vertexInbound : edge.vertexOutbound;
+    }
+
+    @Override
+    public synchronized boolean areAdjacent(Vertex<V> u, Vertex<V> v) throws InvalidVertexException {
+        MyVertex first = checkVertex(u);
+        MyVertex second = checkVertex(v);
+
+        // Only the shorter incidence list needs to be scanned
+        MyVertex smaller = first.incidentEdges.size() <= second.incidentEdges.size() ? first : second;
+        MyVertex other = smaller == first ? second : first;
+
+        for(MyEdge edge : smaller.incidentEdges) {
+            if(edge.contains(other)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public synchronized Vertex<V> insertVertex(V vElement) throws InvalidVertexException {
+        if(existsVertexWith(vElement)) {
+            throw new InvalidVertexException("There's already a vertex with this element.");
+        }
+
+        MyVertex newVertex = new MyVertex(vElement);
+        vertices.put(vElement, newVertex);
+
+        return newVertex;
+    }
+
+    @Override
+    public synchronized Edge<E, V> insertEdge(Vertex<V> u, Vertex<V> v, E edgeElement) throws InvalidVertexException, InvalidEdgeException {
+        if(existsEdgeWith(edgeElement)) {
+            throw new InvalidEdgeException("There's already an edge with this element.");
+        }
+
+        MyVertex outVertex = checkVertex(u);
+        MyVertex inVertex = checkVertex(v);
+
+        return link(outVertex, inVertex, edgeElement);
+    }
+
+    @Override
+    public synchronized Edge<E, V> insertEdge(V vElement1, V vElement2, E edgeElement) throws InvalidVertexException, InvalidEdgeException {
+        if(existsEdgeWith(edgeElement)) {
+            throw new InvalidEdgeException("There's already an edge with this element.");
+        }
+
+        if(!existsVertexWith(vElement1)) {
+            throw new InvalidVertexException("No vertex contains " + vElement1);
+        }
+        if(!existsVertexWith(vElement2)) {
+            throw new InvalidVertexException("No vertex contains " + vElement2);
+        }
+
+        return link(vertices.get(vElement1), vertices.get(vElement2), edgeElement);
+    }
+
+    @Override
+    public synchronized V removeVertex(Vertex<V> v) throws InvalidVertexException {
+        MyVertex vertex = checkVertex(v);
+
+        for(MyEdge edge : new ArrayList<>(vertex.incidentEdges)) {
+            unlink(edge);
+        }
+
+        vertices.remove(vertex.element);
+
+        return vertex.element;
+    }
+
+    @Override
+    public synchronized E removeEdge(Edge<E, V> e) throws InvalidEdgeException {
+        MyEdge edge = checkEdge(e);
+
+        unlink(edge);
+
+        return edge.element;
+    }
+
+    @Override
+    public synchronized V replace(Vertex<V> v, V newElement) throws InvalidVertexException {
+        if(existsVertexWith(newElement)) {
+            throw new InvalidVertexException("There's already a vertex with this element.");
+        }
+
+        MyVertex vertex = checkVertex(v);
+
+        V oldElement = vertex.element;
+        vertices.remove(oldElement);
+        vertex.element = newElement;
+        vertices.put(newElement, vertex);
+
+        return oldElement;
+    }
+
+    @Override
+    public synchronized E replace(Edge<E, V> e, E newElement) throws InvalidEdgeException {
+        if(existsEdgeWith(newElement)) {
+            throw new InvalidEdgeException("There's already an edge with this element.");
+        }
+
+        MyEdge edge = checkEdge(e);
+
+        E oldElement = edge.element;
+        edges.remove(oldElement);
+        edge.element = newElement;
+        edges.put(newElement, edge);
+
+        return oldElement;
+    }
+
+    /**
+     * Creates an edge between two vertices and registers it in both incidence lists
+     * @param outVertex First vertex
+     * @param inVertex Second vertex
+     * @param edgeElement Edge element
+     * @return Created edge
+     */
+    private MyEdge link(MyVertex outVertex, MyVertex inVertex, E edgeElement) {
+        MyEdge newEdge = new MyEdge(edgeElement, outVertex, inVertex);
+
+        edges.put(edgeElement, newEdge);
+        outVertex.incidentEdges.add(newEdge);
+        if(inVertex != outVertex) {
+            inVertex.incidentEdges.add(newEdge);
+        }
+
+        return newEdge;
+    }
+
+    /**
+     * Removes an edge from the graph and from both incidence lists
+     * @param edge Edge to remove
+     */
+    private void unlink(MyEdge edge) {
+        edges.remove(edge.element);
+        edge.vertexOutbound.incidentEdges.remove(edge);
+        edge.vertexInbound.incidentEdges.remove(edge);
+    }
+
+    private boolean existsVertexWith(V vElement) {
+        return vertices.containsKey(vElement);
+    }
+
+    private boolean existsEdgeWith(E edgeElement) {
+        return edges.containsKey(edgeElement);
+    }
+
+    @SuppressWarnings("unchecked")
+    private MyVertex checkVertex(Vertex<V> v) throws InvalidVertexException {
+        if(v == null) throw new InvalidVertexException("Null vertex.");
+
+        MyVertex vertex;
+        try {
+            vertex = (MyVertex) v;
+        } catch (ClassCastException e) {
+            throw new InvalidVertexException("Not a vertex.");
+        }
+
+        if(vertices.get(vertex.element) != vertex) {
+            throw new InvalidVertexException("Vertex does not belong to this graph.");
+        }
+
+        return vertex;
+    }
+
+    @SuppressWarnings("unchecked")
+    private MyEdge checkEdge(Edge<E, V> e) throws InvalidEdgeException {
+        if(e == null) throw new InvalidEdgeException("Null edge.");
+
+        MyEdge edge;
+        try {
+            edge = (MyEdge) e;
+        } catch (ClassCastException ex) {
+            throw new InvalidEdgeException("Not an edge.");
+        }
+
+        if(edges.get(edge.element) != edge) {
+            throw new InvalidEdgeException("Edge does not belong to this graph.");
+        }
+
+        return edge;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder(
+                String.format("Graph with %d vertices and %d edges:\n", numVertices(), numEdges())
+        );
+
+        sb.append("--- Vertices: \n");
+        for(Vertex<V> v : vertices.values()) {
+            sb.append("\t").append(v.toString()).append("\n");
+        }
+        sb.append("\n--- Edges: \n");
+        for(Edge<E, V> e : edges.values()) {
+            sb.append("\t").append(e.toString()).append("\n");
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Vertex holding its element and its incidence list
+     */
+    private class MyVertex implements Vertex<V> {
+        private V element;
+        private final List<MyEdge> incidentEdges;
+
+        /**
+         * MyVertex constructor
+         * @param element Vertex element
+         */
+        public MyVertex(V element) {
+            this.element = element;
+            this.incidentEdges = new ArrayList<>();
+        }
+
+        @Override
+        public V element() {
+            return element;
+        }
+
+        @Override
+        public String toString() {
+            return "Vertex{" + element + "}";
+        }
+    }
+
+    /**
+     * Edge holding its element and both end vertices
+     */
+    private class MyEdge implements Edge<E, V> {
+        private E element;
+        private final MyVertex vertexOutbound;
+        private final MyVertex vertexInbound;
+
+        /**
+         * MyEdge constructor
+         * @param element Edge element
+         * @param vertexOutbound First vertex
+         * @param vertexInbound Second vertex
+         */
+        public MyEdge(E element, MyVertex vertexOutbound, MyVertex vertexInbound) {
+            this.element = element;
+            this.vertexOutbound = vertexOutbound;
+            this.vertexInbound = vertexInbound;
+        }
+
+        @Override
+        public E element() {
+            return element;
+        }
+
+        /**
+         * Checks if a vertex is one of the ends of this edge
+         * @param v Vertex to check
+         * @return True if the vertex is an end of the edge. False otherwise
+         */
+        public boolean contains(Vertex<V> v) {
+            return vertexOutbound == v || vertexInbound == v;
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Vertex<V>[] vertices() {
+            Vertex<V>[] result = new Vertex[2];
+            result[0] = vertexOutbound;
+            result[1] = vertexInbound;
+
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "Edge{{" + element + "}, vOutbound=" + vertexOutbound + ", vInbound=" + vertexInbound + "}";
+        }
+    }
+}
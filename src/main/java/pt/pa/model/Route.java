@@ -2,8 +2,11 @@ package pt.pa.model;
 
 import pt.pa.memento.Memento;
 import pt.pa.memento.Originator;
+import pt.pa.observer.Subject;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Model for the routes
@@ -13,12 +16,18 @@ import java.util.HashMap;
  *
  * [PL2 - Prof. André Sanguinetti]
  */
-public class Route implements Originator {
+public class Route extends Subject implements Originator {
     private String startStopCode;
     private String endStopCode;
-    private HashMap<Transport, Float> distances;
-    private HashMap<Transport, Integer> durations;
-    private HashMap<Transport, Float> costs;
+    private static final int TRANSPORTS = Transport.values().length;
+    private static final int DISTANCES = 0;
+    private static final int DURATIONS = 1;
+    private static final int COSTS = 2;
+
+    // Distances, durations and costs of each transport, indexed by table * TRANSPORTS + ordinal (NaN if not available)
+    private final float[] values;
+    // Bit of each table/transport pair that was given a value, even if null
+    private int keys;
     private boolean isActive;
 
     /**
@@ -30,14 +39,47 @@ public class Route implements Originator {
      * @param costs Costs
      */
     public Route(String startStopCode, String endStopCode, HashMap<Transport, Float> distances, HashMap<Transport, Integer> durations, HashMap<Transport, Float> costs) {
+        super();
         this.startStopCode = startStopCode;
         this.endStopCode = endStopCode;
-        this.distances = distances;
-        this.durations = durations;
-        this.costs = costs;
+        this.values = new float[3 * TRANSPORTS];
+        Arrays.fill(values, Float.NaN);
+        load(DISTANCES, distances);
+        load(DURATIONS, durations);
+        load(COSTS, costs);
         this.isActive = true;
     }
 
+    private void load(int table, Map<Transport, ? extends Number> map) {
+        for(Map.Entry<Transport, ? extends Number> entry : map.entrySet()) {
+            set(table, entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void set(int table, Transport transport, Number value) {
+        int index = table * TRANSPORTS + transport.ordinal();
+        values[index] = value == null ? Float.NaN : value.floatValue();
+        keys |= 1 << index;
+    }
+
+    private boolean hasKey(int table, Transport transport) {
+        return (keys & 1 << (table * TRANSPORTS + transport.ordinal())) != 0;
+    }
+
+    private float get(int table, Transport transport) {
+        return values[table * TRANSPORTS + transport.ordinal()];
+    }
+
+    private Float getFloat(int table, Transport transport) {
+        float value = get(table, transport);
+        return Float.isNaN(value) ? null : value;
+    }
+
+    private Integer getInteger(int table, Transport transport) {
+        float value = get(table, transport);
+        return Float.isNaN(value) ? null : (int) value;
+    }
+
     /**
      * Returns the start stop code
      * @return String containing the start stop code
@@ -55,29 +97,77 @@ public class Route implements Originator {
     }
 
     /**
-     * Returns the distances hash map
+     * Returns the distances hash map (a copy; changes to it don't affect the route)
      * @return Hash map containing the distance of each transport
      */
     public HashMap<Transport, Float> getDistances() {
+        HashMap<Transport, Float> distances = new HashMap<>();
+        for(Transport transport : Transport.values()) {
+            if(hasKey(DISTANCES, transport)) distances.put(transport, getFloat(DISTANCES, transport));
+        }
         return distances;
     }
 
     /**
-     * Returns de durations hash map
+     * Returns de durations hash map (a copy; changes to it don't affect the route)
      * @return Hash map containing the duration of each transport
      */
     public HashMap<Transport, Integer> getDurations() {
+        HashMap<Transport, Integer> durations = new HashMap<>();
+        for(Transport transport : Transport.values()) {
+            if(hasKey(DURATIONS, transport)) durations.put(transport, getInteger(DURATIONS, transport));
+        }
         return durations;
     }
 
     /**
-     * Returns the costs hash map
+     * Returns the costs hash map (a copy; changes to it don't affect the route)
      * @return Hash map containing the cost of each transport
      */
     public HashMap<Transport, Float> getCosts() {
+        HashMap<Transport, Float> costs = new HashMap<>();
+        for(Transport transport : Transport.values()) {
+            if(hasKey(COSTS, transport)) costs.put(transport, getFloat(COSTS, transport));
+        }
         return costs;
     }
 
+    /**
+     * Returns the distance of a transport
+     * @param transport Transport type
+     * @return Distance. NaN if the transport is not available
+     */
+    public float getDistance(Transport transport) {
+        return get(DISTANCES, transport);
+    }
+
+    /**
+     * Returns the duration of a transport
+     * @param transport Transport type
+     * @return Duration. NaN if the transport is not available
+     */
+    public float getDuration(Transport transport) {
+        return get(DURATIONS, transport);
+    }
+
+    /**
+     * Returns the cost of a transport
+     * @param transport Transport type
+     * @return Cost. NaN if the transport is not available
+     */
+    public float getCost(Transport transport) {
+        return get(COSTS, transport);
+    }
+
+    /**
+     * Checks if the route was given a duration for a transport, even if the transport is disabled
+     * @param transport Transport type
+     * @return True if the route has an entry for the transport. False otherwise
+     */
+    public boolean hasDuration(Transport transport) {
+        return hasKey(DURATIONS, transport);
+    }
+
     /**
      * Returns the route status
      * @return True if the route is active. False otherwise
@@ -91,6 +181,7 @@ public class Route implements Originator {
      */
     public void toggleActive() {
         this.isActive = !this.isActive;
+        notifyObservers(null);
     }
 
     /**
@@ -98,9 +189,10 @@ public class Route implements Originator {
      * @param transport Transport to disable
      */
     public void disableTransport(Transport transport) {
-        distances.put(transport, null);
-        durations.put(transport, null);
-        costs.put(transport, null);
+        set(DISTANCES, transport, null);
+        set(DURATIONS, transport, null);
+        set(COSTS, transport, null);
+        notifyObservers(null);
     }
 
     /**
@@ -111,9 +203,10 @@ public class Route implements Originator {
      * @param cost Value of cost
      */
     public void enableTransport(Transport transport, Float distance, Integer duration, Float cost) {
-        distances.put(transport, distance);
-        durations.put(transport, duration);
-        costs.put(transport, cost);
+        set(DISTANCES, transport, distance);
+        set(DURATIONS, transport, duration);
+        set(COSTS, transport, cost);
+        notifyObservers(null);
     }
 
     /**
@@ -122,7 +215,7 @@ public class Route implements Originator {
      */
     public Memento saveBicycleDuration() {
         // Save the current duration for bicycles
-        return new TransportMemento(Transport.BICYCLE, distances.get(Transport.BICYCLE), durations.get(Transport.BICYCLE), costs.get(Transport.BICYCLE));
+        return new TransportMemento(Transport.BICYCLE, getFloat(DISTANCES, Transport.BICYCLE), getInteger(DURATIONS, Transport.BICYCLE), getFloat(COSTS, Transport.BICYCLE));
     }
 
     /**
@@ -142,8 +235,9 @@ public class Route implements Originator {
      * @param duration Value of duration
      */
     public void updateBicycleDuration(Integer duration) {
-        if (durations.containsKey(Transport.BICYCLE)) {
-            durations.put(Transport.BICYCLE, duration);
+        if (hasKey(DURATIONS, Transport.BICYCLE)) {
+            set(DURATIONS, Transport.BICYCLE, duration);
+            notifyObservers(null);
         }
     }
 
@@ -160,7 +254,7 @@ public class Route implements Originator {
     @Override
     public Memento save(String key) {
         Transport transport = Transport.fromString(key);
-        return new TransportMemento(transport, distances.get(transport), durations.get(transport), costs.get(transport));
+        return new TransportMemento(transport, getFloat(DISTANCES, transport), getInteger(DURATIONS, transport), getFloat(COSTS, transport));
     }
 
     @Override
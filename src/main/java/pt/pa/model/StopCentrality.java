@@ -0,0 +1,140 @@
+package pt.pa.model;
+
+import com.brunomnsilva.smartgraph.graph.Vertex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Degree of each stop (number of active routes), kept in one bucket per degree so the stops can be
+ * listed from the most to the least central without sorting. Degrees only change by one at a time,
+ * so a change just moves a stop to the next bucket. Uses one node per stop and one slot per degree
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+final class StopCentrality {
+    private final Map<Vertex<Stop>, Node> nodes = new HashMap<>();
+    // First and last node of the bucket of each degree. Stops with the same degree keep the order in which
+    // they reached it
+    private final List<Node> firsts = new ArrayList<>();
+    private final List<Node> lasts = new ArrayList<>();
+    private int maxDegree;
+
+    /**
+     * Adds a stop without routes
+     * @param vertex Vertex of the stop
+     */
+    void add(Vertex<Stop> vertex) {
+        if(nodes.containsKey(vertex)) return;
+
+        Node node = new Node(vertex);
+        nodes.put(vertex, node);
+        link(node);
+    }
+
+    /**
+     * Removes a stop
+     * @param vertex Vertex of the stop
+     */
+    void remove(Vertex<Stop> vertex) {
+        Node node = nodes.remove(vertex);
+        if(node != null) unlink(node);
+    }
+
+    /**
+     * Changes the degree of a stop
+     * @param vertex Vertex of the stop
+     * @param delta Number of routes added (negative if removed)
+     */
+    void change(Vertex<Stop> vertex, int delta) {
+        Node node = nodes.get(vertex);
+        if(node == null || delta == 0) return;
+
+        unlink(node);
+        node.degree = Math.max(0, node.degree + delta);
+        link(node);
+    }
+
+    /**
+     * Returns the degree of a stop
+     * @param vertex Vertex of the stop
+     * @return Number of active routes of the stop. 0 if it isn't in the graph
+     */
+    int degree(Vertex<Stop> vertex) {
+        Node node = nodes.get(vertex);
+        return node == null ? 0 : node.degree;
+    }
+
+    /**
+     * Returns the most central stops
+     * @param k Maximum number of stops
+     * @return List containing up to k vertices, from the highest to the lowest degree
+     */
+    List<Vertex<Stop>> top(int k) {
+        List<Vertex<Stop>> top = new ArrayList<>(Math.max(0, Math.min(k, nodes.size())));
+        for(int degree = maxDegree; degree >= 0 && top.size() < k; degree--) {
+            if(degree >= firsts.size()) continue;
+            for(Node node = firsts.get(degree); node != null && top.size() < k; node = node.next) {
+                top.add(node.vertex);
+            }
+        }
+
+        return top;
+    }
+
+    /**
+     * Returns the number of stops
+     * @return Number of stops
+     */
+    int size() {
+        return nodes.size();
+    }
+
+    private void link(Node node) {
+        while(firsts.size() <= node.degree) {
+            firsts.add(null);
+            lasts.add(null);
+        }
+
+        Node last = lasts.get(node.degree);
+        node.previous = last;
+        node.next = null;
+        if(last == null) firsts.set(node.degree, node);
+        else last.next = node;
+        lasts.set(node.degree, node);
+
+        maxDegree = Math.max(maxDegree, node.degree);
+    }
+
+    private void unlink(Node node) {
+        if(node.previous == null) firsts.set(node.degree, node.next);
+        else node.previous.next = node.next;
+        if(node.next == null) lasts.set(node.degree, node.previous);
+        else node.next.previous = node.previous;
+        node.previous = null;
+        node.next = null;
+
+        while(maxDegree > 0 && firsts.get(maxDegree) == null) {
+            maxDegree--;
+        }
+    }
+
+    /**
+     * Stop in the bucket of its degree
+     */
+    private static final class Node {
+        private final Vertex<Stop> vertex;
+        private int degree;
+        private Node previous;
+        private Node next;
+
+        private Node(Vertex<Stop> vertex) {
+            this.vertex = vertex;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package pt.pa.model;
+
+import pt.pa.utils.GeoUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Index of the stops by location, used to find the stops near a point without looking at every stop.
+ * Each stop is kept as a point of the unit sphere, where the straight-line distance grows with the
+ * great-circle distance, in a balanced k-d tree. Stops inserted or removed after the tree was built are
+ * kept aside and checked one by one, and the tree is rebuilt on the next query once there are too many
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+final class StopLocationIndex {
+    /**
+     * Number of changes since the last build after which the tree is rebuilt
+     */
+    static final int REBUILD_THRESHOLD = 1024;
+
+    // Stops of the tree, in tree order: the stop of a range [from, to) is at its middle, with the
+    // smaller coordinates of its axis before it and the larger after it
+    private Stop[] stops = new Stop[0];
+    // Coordinates x, y and z of each stop of the tree, one after the other
+    private double[] points = new double[0];
+    private byte[] axes = new byte[0];
+    private final Set<Stop> added = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Stop> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Adds a stop to the index
+     * @param stop Stop object
+     */
+    synchronized void add(Stop stop) {
+        if(!removed.remove(stop)) added.add(stop);
+    }
+
+    /**
+     * Removes a stop from the index
+     * @param stop Stop object
+     */
+    synchronized void remove(Stop stop) {
+        if(!added.remove(stop)) removed.add(stop);
+    }
+
+    /**
+     * Finds the stops closest to a point
+     * @param latitude Latitude of the point, in degrees
+     * @param longitude Longitude of the point, in degrees
+     * @param k Number of stops
+     * @return List containing up to k stops, closest first
+     */
+    synchronized List<Stop> nearest(double latitude, double longitude, int k) {
+        if(k <= 0) return Collections.emptyList();
+        rebuildIfNeeded();
+
+        double[] point = toPoint(latitude, longitude);
+        // Farthest of the best stops on top, so it's the one replaced
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance).reversed());
+        nearest(point, 0, stops.length, k, best);
+        for(Stop stop : added) {
+            offer(stop, squaredDistance(point, toPoint(stop.getLatitude(), stop.getLongitude())), k, best);
+        }
+
+        List<Candidate> found = new ArrayList<>(best);
+        found.sort(Comparator.comparingDouble(Candidate::distance));
+        return toStops(found);
+    }
+
+    /**
+     * Finds the stops within a distance of a point
+     * @param latitude Latitude of the point, in degrees
+     * @param longitude Longitude of the point, in degrees
+     * @param radius Distance, in kilometers
+     * @return List containing the stops, closest first
+     */
+    synchronized List<Stop> within(double latitude, double longitude, double radius) {
+        if(!(radius >= 0)) return Collections.emptyList();
+        rebuildIfNeeded();
+
+        double[] point = toPoint(latitude, longitude);
+        double chord = 2 * Math.sin(Math.min(radius / GeoUtil.EARTH_RADIUS_KM, Math.PI) / 2);
+        // Small margin so that stops exactly at the distance aren't lost to rounding
+        double limit = chord * chord * (1 + 1e-12);
+
+        List<Candidate> found = new ArrayList<>();
+        within(point, limit, 0, stops.length, found);
+        for(Stop stop : added) {
+            double distance = squaredDistance(point, toPoint(stop.getLatitude(), stop.getLongitude()));
+            if(distance <= limit) found.add(new Candidate(stop, distance));
+        }
+
+        found.sort(Comparator.comparingDouble(Candidate::distance));
+        return toStops(found);
+    }
+
+    private void nearest(double[] point, int from, int to, int k, PriorityQueue<Candidate> best) {
+        if(from >= to) return;
+
+        int middle = (from + to) >>> 1;
+        offer(stops[middle], squaredDistance(point, middle), k, best);
+
+        int axis = axes[middle];
+        double difference = point[axis] - points[3 * middle + axis];
+        if(difference < 0) {
+            nearest(point, from, middle, k, best);
+            if(best.size() < k || difference * difference < best.peek().distance()) nearest(point, middle + 1, to, k, best);
+        } else {
+            nearest(point, middle + 1, to, k, best);
+            if(best.size() < k || difference * difference < best.peek().distance()) nearest(point, from, middle, k, best);
+        }
+    }
+
+    private void within(double[] point, double limit, int from, int to, List<Candidate> found) {
+        if(from >= to) return;
+
+        int middle = (from + to) >>> 1;
+        double distance = squaredDistance(point, middle);
+        if(distance <= limit && !isRemoved(stops[middle])) found.add(new Candidate(stops[middle], distance));
+
+        int axis = axes[middle];
+        double difference = point[axis] - points[3 * middle + axis];
+        if(difference < 0 || difference * difference <= limit) within(point, limit, from, middle, found);
+        if(difference >= 0 || difference * difference <= limit) within(point, limit, middle + 1, to, found);
+    }
+
+    /**
+     * Keeps a stop if it's closer than the k-th best stop found
+     */
+    private void offer(Stop stop, double distance, int k, PriorityQueue<Candidate> best) {
+        if(isRemoved(stop)) return;
+
+        if(best.size() < k) {
+            best.add(new Candidate(stop, distance));
+        } else if(distance < best.peek().distance()) {
+            best.poll();
+            best.add(new Candidate(stop, distance));
+        }
+    }
+
+    private boolean isRemoved(Stop stop) {
+        return !removed.isEmpty() && removed.contains(stop);
+    }
+
+    /**
+     * Rebuilds the tree with the stops inserted and without the stops removed, when there are too many
+     */
+    private void rebuildIfNeeded() {
+        if(added.size() + removed.size() <= REBUILD_THRESHOLD) return;
+
+        List<Stop> current = new ArrayList<>(stops.length + added.size());
+        for(Stop stop : stops) {
+            if(!isRemoved(stop)) current.add(stop);
+        }
+        current.addAll(added);
+        added.clear();
+        removed.clear();
+
+        int n = current.size();
+        stops = current.toArray(new Stop[0]);
+        points = new double[3 * n];
+        axes = new byte[n];
+        for(int i = 0; i < n; i++) {
+            System.arraycopy(toPoint(stops[i].getLatitude(), stops[i].getLongitude()), 0, points, 3 * i, 3);
+        }
+        build(0, n);
+    }
+
+    /**
+     * Splits a range at its middle along the axis where its points are most spread
+     */
+    private void build(int from, int to) {
+        if(to - from <= 1) return;
+
+        int axis = 0;
+        double widest = -1;
+        for(int a = 0; a < 3; a++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for(int i = from; i < to; i++) {
+                min = Math.min(min, points[3 * i + a]);
+                max = Math.max(max, points[3 * i + a]);
+            }
+            if(max - min > widest) {
+                widest = max - min;
+                axis = a;
+            }
+        }
+
+        int middle = (from + to) >>> 1;
+        select(from, to - 1, middle, axis);
+        axes[middle] = (byte) axis;
+        build(from, middle);
+        build(middle + 1, to);
+    }
+
+    /**
+     * Moves the point with the given rank along an axis to its position, with the smaller points before
+     * it and the larger after it (quickselect)
+     */
+    private void select(int left, int right, int rank, int axis) {
+        while(left < right) {
+            double pivot = points[3 * ((left + right) >>> 1) + axis];
+            int i = left;
+            int j = right;
+            while(i <= j) {
+                while(points[3 * i + axis] < pivot) i++;
+                while(points[3 * j + axis] > pivot) j--;
+                if(i <= j) swap(i++, j--);
+            }
+
+            if(rank <= j) right = j;
+            else if(rank >= i) left = i;
+            else return;
+        }
+    }
+
+    private void swap(int i, int j) {
+        Stop stop = stops[i];
+        stops[i] = stops[j];
+        stops[j] = stop;
+        for(int a = 0; a < 3; a++) {
+            double value = points[3 * i + a];
+            points[3 * i + a] = points[3 * j + a];
+            points[3 * j + a] = value;
+        }
+    }
+
+    private static double[] toPoint(double latitude, double longitude) {
+        double phi = Math.toRadians(latitude);
+        double lambda = Math.toRadians(longitude);
+        return new double[]{Math.cos(phi) * Math.cos(lambda), Math.cos(phi) * Math.sin(lambda), Math.sin(phi)};
+    }
+
+    private static double squaredDistance(double[] a, double[] b) {
+        double x = a[0] - b[0];
+        double y = a[1] - b[1];
+        double z = a[2] - b[2];
+        return x * x + y * y + z * z;
+    }
+
+    private double squaredDistance(double[] a, int i) {
+        double x = a[0] - points[3 * i];
+        double y = a[1] - points[3 * i + 1];
+        double z = a[2] - points[3 * i + 2];
+        return x * x + y * y + z * z;
+    }
+
+    private static List<Stop> toStops(List<Candidate> candidates) {
+        List<Stop> stops = new ArrayList<>(candidates.size());
+        for(Candidate candidate : candidates) {
+            stops.add(candidate.stop());
+        }
+
+        return stops;
+    }
+
+    /**
+     * Stop found by a search and its squared straight-line distance to the point
+     */
+    private record Candidate(Stop stop, double distance) {
+    }
+}
@@ -0,0 +1,194 @@
+package pt.pa.model;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Prefix tree over the names of the stops, used to suggest names while they are typed.
+ * Names are compared in lower case and without accents, so "Se" finds "Sé". Every word of a name is
+ * also indexed, so "aliados" finds "Avenida dos Aliados", but names that start with the typed text
+ * are suggested first
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+final class StopNameIndex {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private final Node root = new Node();
+
+    /**
+     * Adds a name to the index. A name added more than once must be removed as many times
+     * @param name Stop name
+     */
+    void add(String name) {
+        String key = normalize(name);
+        for(int start : wordStarts(key)) {
+            Node node = root;
+            node.count(start == 0, 1);
+            for(int i = start; i < key.length(); i++) {
+                node = node.childOrCreate(key.charAt(i));
+                node.count(start == 0, 1);
+            }
+            node.names(start == 0).add(name);
+        }
+    }
+
+    /**
+     * Removes a name from the index
+     * @param name Stop name
+     */
+    void remove(String name) {
+        String key = normalize(name);
+        for(int start : wordStarts(key)) {
+            Node node = nodeOf(key, start);
+            if(node == null || !node.names(start == 0).remove(name)) continue;
+
+            node = root;
+            node.count(start == 0, -1);
+            for(int i = start; i < key.length(); i++) {
+                node = node.child(key.charAt(i));
+                node.count(start == 0, -1);
+            }
+        }
+    }
+
+    /**
+     * Finds the names that start with a text, followed by the names with a word that starts with it
+     * @param prefix Typed text
+     * @param limit Maximum number of names
+     * @return List of distinct names, in alphabetical order within each group
+     */
+    List<String> find(String prefix, int limit) {
+        Node node = nodeOf(normalize(prefix).stripLeading(), 0);
+        if(node == null || limit <= 0) return Collections.emptyList();
+
+        Set<String> found = new LinkedHashSet<>();
+        collect(node, true, found, limit);
+        collect(node, false, found, limit);
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * Follows a key from one of its positions, returning null if no name has it
+     */
+    private Node nodeOf(String key, int start) {
+        Node node = root;
+        for(int i = start; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+
+        return node;
+    }
+
+    /**
+     * Walks a subtree in key order, skipping the subtrees without names of the wanted group
+     */
+    private static void collect(Node node, boolean whole, Set<String> found, int limit) {
+        List<String> names = whole ? node.wholeNames : node.wordNames;
+        if(names != null) {
+            for(String name : names) {
+                if(found.size() == limit) return;
+                found.add(name);
+            }
+        }
+
+        for(int i = 0; i < node.size && found.size() < limit; i++) {
+            Node child = node.children[i];
+            if((whole ? child.wholeCount : child.wordCount) > 0) {
+                collect(child, whole, found, limit);
+            }
+        }
+    }
+
+    /**
+     * Converts a name to the form used as key: lower case, without accents and with single spaces
+     * @param name Name or typed text
+     * @return Key
+     */
+    static String normalize(String name) {
+        String key = MARKS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("");
+        return SPACES.matcher(key.toLowerCase(Locale.ROOT)).replaceAll(" ");
+    }
+
+    /**
+     * Positions where the words of a key start
+     */
+    private static List<Integer> wordStarts(String key) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        for(int i = 1; i < key.length(); i++) {
+            if(Character.isLetterOrDigit(key.charAt(i)) && !Character.isLetterOrDigit(key.charAt(i - 1))) {
+                starts.add(i);
+            }
+        }
+
+        return starts;
+    }
+
+    /**
+     * Node of the tree. The children are kept sorted by character, so the names come out in order
+     */
+    private static final class Node {
+        // Leaves share the empty arrays, most nodes of a long name have a single child
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private int size;
+        // Names whose whole key, or one of their words, ends here
+        private List<String> wholeNames;
+        private List<String> wordNames;
+        // Number of names of each group in the subtree
+        private int wholeCount;
+        private int wordCount;
+
+        private Node child(char c) {
+            int i = Arrays.binarySearch(keys, 0, size, c);
+            return i < 0 ? null : children[i];
+        }
+
+        private Node childOrCreate(char c) {
+            int i = Arrays.binarySearch(keys, 0, size, c);
+            if(i >= 0) return children[i];
+
+            i = -i - 1;
+            if(size == keys.length) {
+                keys = Arrays.copyOf(keys, Math.max(1, size * 2));
+                children = Arrays.copyOf(children, keys.length);
+            }
+            System.arraycopy(keys, i, keys, i + 1, size - i);
+            System.arraycopy(children, i, children, i + 1, size - i);
+            keys[i] = c;
+            children[i] = new Node();
+            size++;
+
+            return children[i];
+        }
+
+        private void count(boolean whole, int delta) {
+            if(whole) wholeCount += delta;
+            else wordCount += delta;
+        }
+
+        private List<String> names(boolean whole) {
+            if(whole) {
+                if(wholeNames == null) wholeNames = new ArrayList<>(1);
+                return wholeNames;
+            }
+            if(wordNames == null) wordNames = new ArrayList<>(1);
+            return wordNames;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package pt.pa.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Immutable set of transports stored as a bitmask (one bit per Transport ordinal).
+ * There's a single instance per combination, so sets can be compared by reference
+ * and the mask can be used directly as a cache key
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public final class TransportSet implements Iterable<Transport> {
+    private static final Transport[] TRANSPORTS = Transport.values();
+    private static final TransportSet[] SETS = new TransportSet[1 << TRANSPORTS.length];
+
+    static {
+        for(int mask = 0; mask < SETS.length; mask++) {
+            SETS[mask] = new TransportSet(mask);
+        }
+    }
+
+    private final int mask;
+    private final List<Transport> transports;
+
+    private TransportSet(int mask) {
+        this.mask = mask;
+
+        List<Transport> transports = new ArrayList<>();
+        for(Transport transport : TRANSPORTS) {
+            if((mask & 1 << transport.ordinal()) != 0) transports.add(transport);
+        }
+        this.transports = Collections.unmodifiableList(transports);
+    }
+
+    /**
+     * Returns the set with the given transports
+     * @param transports Transports of the set
+     * @return TransportSet object
+     */
+    public static TransportSet of(Transport... transports) {
+        int mask = 0;
+        for(Transport transport : transports) {
+            mask |= 1 << transport.ordinal();
+        }
+        return SETS[mask];
+    }
+
+    /**
+     * Returns the set with the given transports
+     * @param transports Collection of transports
+     * @return TransportSet object
+     */
+    public static TransportSet of(Collection<Transport> transports) {
+        int mask = 0;
+        for(Transport transport : transports) {
+            mask |= 1 << transport.ordinal();
+        }
+        return SETS[mask];
+    }
+
+    /**
+     * Returns the set of a bitmask
+     * @param mask Bitmask with one bit per Transport ordinal
+     * @return TransportSet object
+     */
+    public static TransportSet fromMask(int mask) {
+        return SETS[mask & (SETS.length - 1)];
+    }
+
+    /**
+     * Returns the set with every transport
+     * @return TransportSet object
+     */
+    public static TransportSet all() {
+        return SETS[SETS.length - 1];
+    }
+
+    /**
+     * Returns the bitmask of the set
+     * @return Bitmask with one bit per Transport ordinal
+     */
+    public int mask() {
+        return mask;
+    }
+
+    /**
+     * Checks if the set contains a transport
+     * @param transport Transport type
+     * @return True if the transport is in the set. False otherwise
+     */
+    public boolean contains(Transport transport) {
+        return (mask & 1 << transport.ordinal()) != 0;
+    }
+
+    /**
+     * Checks if the set is empty
+     * @return True if the set has no transports. False otherwise
+     */
+    public boolean isEmpty() {
+        return mask == 0;
+    }
+
+    /**
+     * Returns the number of transports in the set
+     * @return Number of transports
+     */
+    public int size() {
+        return Integer.bitCount(mask);
+    }
+
+    /**
+     * Returns the transports of the set, in ordinal order
+     * @return Unmodifiable list of transports
+     */
+    public List<Transport> toList() {
+        return transports;
+    }
+
+    @Override
+    public Iterator<Transport> iterator() {
+        return transports.iterator();
+    }
+
+    @Override
+    public String toString() {
+        return transports.toString();
+    }
+}
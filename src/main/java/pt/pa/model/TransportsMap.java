@@ -3,11 +3,23 @@ package pt.pa.model;
 import com.brunomnsilva.smartgraph.graph.*;
 import pt.pa.observer.Observable;
 import pt.pa.observer.Observer;
+import pt.pa.routing.BellmanFord;
+import pt.pa.routing.BidirectionalDijkstra;
+import pt.pa.routing.ContractionHierarchies;
+import pt.pa.routing.ContractionHierarchy;
+import pt.pa.routing.CustomizableRoutePlanner;
+import pt.pa.routing.Dijkstra;
+import pt.pa.routing.RouteMatrix;
+import pt.pa.routing.RouteQueryCache;
+import pt.pa.routing.RoutingGraph;
+import pt.pa.routing.SearchMode;
+import pt.pa.routing.ShortestPathTree;
+import pt.pa.routing.ShortestPathTreeCache;
 import pt.pa.strategy.DistanceRouteStrategy;
 import pt.pa.strategy.RouteStrategy;
-import pt.pa.utils.HashMapUtil;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 import static pt.pa.utils.DatasetUtils.*;
 
@@ -19,11 +31,29 @@ import static pt.pa.utils.DatasetUtils.*;
  *
  * [PL2 - Prof. André Sanguinetti]
  */
-public class TransportsMap extends GraphEdgeList<Stop, Route> implements Observable {
+public class TransportsMap extends GraphAdjacencyList<Stop, Route> implements Observable, Observer {
     private List<Stop> stops;
     private List<Route> routes;
     private List<Observer> observers;
-    private RouteStrategy routeStrategy;
+    private volatile RouteStrategy routeStrategy;
+    private RoutingGraph routingGraph;
+    private RoutingGraph staleRoutingGraph;
+    private final ContractionHierarchies hierarchies;
+    private final CustomizableRoutePlanner routePlanner;
+    private final RouteQueryCache routeCache;
+    private final ShortestPathTreeCache treeCache;
+    private long networkVersion;
+    // Indexes of the vertices, kept in sync with the graph so that the lookups don't scan every stop.
+    // Stops that share a name or a code are kept in the order they were indexed
+    private final Map<String, List<Vertex<Stop>>> vertexByName;
+    private final Map<String, List<Vertex<Stop>>> vertexByCode;
+    private final Map<Stop, Vertex<Stop>> vertexByStop;
+    private final StopNameIndex stopNames;
+    private final StopLocationIndex stopLocations;
+    // Transports of the active routes of each stop code, and what was counted for each route in the graph
+    private final Map<String, StopTransports> stopTransports;
+    private final Map<Route, TrackedRoute> trackedRoutes;
+    private final StopCentrality centrality;
 
     /**
      * TransportsMap constructor
@@ -35,6 +65,18 @@ public class TransportsMap extends GraphEdgeList<Stop, Route> implements Observa
         loadCoordinatesFromCSV(stops);
         this.observers = new ArrayList<>();
         this.routeStrategy = new DistanceRouteStrategy();
+        this.hierarchies = new ContractionHierarchies(this::getRoutingGraph);
+        this.routePlanner = new CustomizableRoutePlanner();
+        this.routeCache = new RouteQueryCache();
+        this.treeCache = new ShortestPathTreeCache();
+        this.vertexByName = new HashMap<>();
+        this.vertexByCode = new HashMap<>();
+        this.vertexByStop = new HashMap<>();
+        this.stopNames = new StopNameIndex();
+        this.stopLocations = new StopLocationIndex();
+        this.stopTransports = new HashMap<>();
+        this.trackedRoutes = new IdentityHashMap<>();
+        this.centrality = new StopCentrality();
     }
 
     /**
@@ -51,12 +93,41 @@ public class TransportsMap extends GraphEdgeList<Stop, Route> implements Observa
      * @return Stop object with the given name if it's found. Null otherwise
      */
     public Stop getStopByName(String name){
-        for(Vertex<Stop> v : vertices()){
-            if(v.element().getName().equals(name)){
-                return v.element();
-            }
-        }
-        return null;
+        Vertex<Stop> v = firstIndexed(vertexByName, name);
+        return v == null ? null : v.element();
+    }
+
+    /**
+     * Finds the names of the stops that match a typed text, ignoring case and accents. Names that
+     * start with the text come first, followed by names with a word that starts with it
+     * @param prefix Typed text
+     * @param limit Maximum number of names
+     * @return List of distinct stop names
+     */
+    public List<String> findStopNames(String prefix, int limit){
+        return stopNames.find(prefix, limit);
+    }
+
+    /**
+     * Finds the stops closest to a geographic point
+     * @param latitude Latitude of the point, in degrees
+     * @param longitude Longitude of the point, in degrees
+     * @param k Maximum number of stops
+     * @return List containing the closest stops, closest first
+     */
+    public List<Stop> findNearestStops(double latitude, double longitude, int k){
+        return stopLocations.nearest(latitude, longitude, k);
+    }
+
+    /**
+     * Finds the stops within a distance of a geographic point
+     * @param latitude Latitude of the point, in degrees
+     * @param longitude Longitude of the point, in degrees
+     * @param radius Distance, in kilometers
+     * @return List containing the stops within the distance, closest first
+     */
+    public List<Stop> findStopsWithin(double latitude, double longitude, double radius){
+        return stopLocations.within(latitude, longitude, radius);
     }
 
     /**
@@ -73,16 +144,12 @@ public class TransportsMap extends GraphEdgeList<Stop, Route> implements Observa
      * @return Stop object with the given code if it's found. Null otherwise
      */
     public Stop getStopByCode(String code){
-        for(Vertex<Stop> v : vertices()){
-            if(v.element().getCode().equals(code)){
-                return v.element();
-            }
-        }
-        return null;
+        Vertex<Stop> v = firstIndexed(vertexByCode, code);
+        return v == null ? null : v.element();
     }
 
     /**
-     * Sets the route strategy
+     * Sets the default route strategy, used by the queries that don't receive one
      * @param strategy RouteStrategy object
      */
     public void setRouteStrategy(RouteStrategy strategy){
@@ -105,23 +172,34 @@ public class TransportsMap extends GraphEdgeList<Stop, Route> implements Observa
     }
 
     /**
-     * Calculates the centrality of the Stops (i.e. number of incident edges)
-     * @return Hashmap containing the centrality of all stop
+     * Returns the centrality of the Stops (i.e. number of active routes of each stop)
+     * @return Map containing the centrality of all stops, from the most to the least central
      */
     public Map<String, Integer> stopsCentrality(){
-        Map<String, Integer> centralityMap = new HashMap<>();
-
-        for(Vertex<Stop> stop : this.vertices()){
-            int numAdjacentStops = this.incidentEdges(stop).size();
+        Map<String, Integer> centralityMap = new LinkedHashMap<>();
 
-            centralityMap.put(stop.element().getName(), numAdjacentStops);
+        for(Vertex<Stop> stop : centrality.top(centrality.size())){
+            centralityMap.putIfAbsent(stop.element().getName(), centrality.degree(stop));
         }
 
-        centralityMap = HashMapUtil.sortByValueDescending(centralityMap);
-
         return centralityMap;
     }
 
+    /**
+     * Returns the most central Stops
+     * @param k Maximum number of stops
+     * @return List containing up to k entries with the stop name and its centrality, the most central first
+     */
+    public List<Map.Entry<String, Integer>> topCentralStops(int k){
+        List<Map.Entry<String, Integer>> top = new ArrayList<>();
+
+        for(Vertex<Stop> stop : centrality.top(k)){
+            top.add(Map.entry(stop.element().getName(), centrality.degree(stop)));
+        }
+
+        return top;
+    }
+
     /**
      * Returns the number of edges with a transport type
      * @param transport Transport type
@@ -130,7 +208,7 @@ public class TransportsMap extends GraphEdgeList<Stop, Route> implements Observa
     public int numEdgesWithTransport(Transport transport) {
         int count = 0;
         for(Edge<Route, Stop> edge : edges()) {
-            if(edge.element().getDistances().get(transport) != null) {
+            if(!Float.isNaN(edge.element().getDistance(transport))) {
                 count++;
             }
         }
@@ -143,12 +221,54 @@ public class TransportsMap extends GraphEdgeList<Stop, Route> implements Observa
      * @return The Vertex containing the Stop if found. Null otherwise.
      */
     public Vertex<Stop> getVertexByStop(Stop stop) {
-        for (Vertex<Stop> v : vertices()) {
-            if (v.element().equals(stop)) {
-                return v;
-            }
-        }
-        return null;
+        return stop == null ? null : vertexByStop.get(stop);
+    }
+
+    /**
+     * Adds a vertex to the stop indexes (name, code, stop, name suggestions and location). When two
+     * stops share a name or a code, the lookups return the one indexed first
+     * @param v Vertex inserted in the graph
+     */
+    private void indexVertex(Vertex<Stop> v) {
+        Stop stop = v.element();
+        vertexByName.computeIfAbsent(stop.getName(), key -> new ArrayList<>(1)).add(v);
+        vertexByCode.computeIfAbsent(stop.getCode(), key -> new ArrayList<>(1)).add(v);
+        vertexByStop.put(stop, v);
+        stopNames.add(stop.getName());
+        stopLocations.add(stop);
+    }
+
+    /**
+     * Removes a stop from the stop indexes. If other stops share its name or code, the lookups move on
+     * to the next one indexed
+     * @param v Vertex of the stop
+     * @param stop Stop removed from the vertex
+     */
+    private void unindexVertex(Vertex<Stop> v, Stop stop) {
+        vertexByStop.remove(stop);
+        stopNames.remove(stop.getName());
+        stopLocations.remove(stop);
+        unindex(vertexByName, stop.getName(), v);
+        unindex(vertexByCode, stop.getCode(), v);
+    }
+
+    /**
+     * Returns the first vertex indexed with a key
+     */
+    private static Vertex<Stop> firstIndexed(Map<String, List<Vertex<Stop>>> index, String key) {
+        List<Vertex<Stop>> vertices = index.get(key);
+        return vertices == null ? null : vertices.get(0);
+    }
+
+    /**
+     * Removes a vertex from the list of a key, dropping the key once no vertex has it
+     */
+    private static void unindex(Map<String, List<Vertex<Stop>>> index, String key, Vertex<Stop> v) {
+        List<Vertex<Stop>> vertices = index.get(key);
+        if(vertices == null) return;
+
+        vertices.remove(v);
+        if(vertices.isEmpty()) index.remove(key);
     }
 
     /**
@@ -195,7 +315,173 @@ public class TransportsMap extends GraphEdgeList<Stop, Route> implements Observa
      * @return Map containing the route data
      */
     public Map<Stop, RouteInfo> calculateRoute(Stop start, List<Transport> transports) {
-        return routeStrategy.calculateRoute(this, start, transports);
+        return calculateRoute(start, TransportSet.of(transports));
+    }
+
+    /**
+     * Calculates a route between two stops based on the Strategy
+     * @param start Start stop
+     * @param transports Set of transports
+     * @return Map containing the route data
+     */
+    public Map<Stop, RouteInfo> calculateRoute(Stop start, TransportSet transports) {
+        return calculateRoute(start, transports, routeStrategy);
+    }
+
+    /**
+     * Calculates a route from a stop to every other stop with a given strategy
+     * @param start Start stop
+     * @param transports Set of transports
+     * @param strategy RouteStrategy to use in this query
+     * @return Map containing the route data
+     */
+    public Map<Stop, RouteInfo> calculateRoute(Stop start, TransportSet transports, RouteStrategy strategy) {
+        return strategy.calculateRoute(this, start, transports);
+    }
+
+    /**
+     * Calculates a route between two stops based on the Strategy, exploring only until the end stop is reached
+     * @param start Start stop
+     * @param end End stop
+     * @param transports List of transports
+     * @return Unmodifiable list containing the route information of each route taken. Empty if there's no route
+     */
+    public List<RouteInfo> calculateRoute(Stop start, Stop end, List<Transport> transports) {
+        return calculateRoute(start, end, TransportSet.of(transports));
+    }
+
+    /**
+     * Calculates a route between two stops based on the Strategy, exploring only until the end stop is reached.
+     * Results are cached until the network changes
+     * @param start Start stop
+     * @param end End stop
+     * @param transports Set of transports
+     * @return Unmodifiable list containing the route information of each route taken. Empty if there's no route
+     */
+    public List<RouteInfo> calculateRoute(Stop start, Stop end, TransportSet transports) {
+        return calculateRoute(start, end, transports, routeStrategy);
+    }
+
+    /**
+     * Calculates a route between two stops with a given strategy, exploring only until the end stop is reached.
+     * The query doesn't change the state of the map, so queries with different strategies can run in parallel.
+     * Results are cached until the network changes
+     * @param start Start stop
+     * @param end End stop
+     * @param transports Set of transports
+     * @param strategy RouteStrategy to use in this query
+     * @return Unmodifiable list containing the route information of each route taken. Empty if there's no route
+     */
+    public List<RouteInfo> calculateRoute(Stop start, Stop end, TransportSet transports, RouteStrategy strategy) {
+        Snapshot snapshot = getSnapshot();
+        RoutingGraph routingGraph = snapshot.graph();
+        Criterion criterion = strategy.getCriterion();
+        RouteQueryCache.Query query = RouteQueryCache.key(routingGraph.getId(start), routingGraph.getId(end),
+                criterion, transports, strategy.getSearchMode());
+
+        List<RouteInfo> cached = routeCache.get(snapshot.version(), query);
+        if(cached != null) {
+            return cached;
+        }
+
+        // Repeated origins are answered from a complete tree of the start stop
+        ShortestPathTree tree = treeCache.lookup(routingGraph, query.source(), transports, criterion);
+        if(tree == null) {
+            tree = searchRoute(routingGraph, query.source(), query.target(), transports, criterion, strategy.getSearchMode());
+        }
+
+        return routeCache.put(snapshot.version(), query, tree.pathTo(end));
+    }
+
+    /**
+     * Returns the cache of the routes calculated between two stops
+     * @return RouteQueryCache object
+     */
+    public RouteQueryCache getRouteCache() {
+        return routeCache;
+    }
+
+    /**
+     * Searches for a route between two stops based on the Strategy
+     * @param start Start stop
+     * @param end End stop
+     * @param transports List of transports
+     * @return ShortestPathTree containing the route to the end stop and the search statistics
+     */
+    public ShortestPathTree searchRoute(Stop start, Stop end, List<Transport> transports) {
+        return searchRoute(start, end, TransportSet.of(transports));
+    }
+
+    /**
+     * Searches for a route between two stops based on the Strategy
+     * @param start Start stop
+     * @param end End stop
+     * @param transports Set of transports
+     * @return ShortestPathTree containing the route to the end stop and the search statistics
+     */
+    public ShortestPathTree searchRoute(Stop start, Stop end, TransportSet transports) {
+        return searchRoute(start, end, transports, routeStrategy);
+    }
+
+    /**
+     * Searches for a route between two stops with a given strategy
+     * @param start Start stop
+     * @param end End stop
+     * @param transports Set of transports
+     * @param strategy RouteStrategy to use in this query
+     * @return ShortestPathTree containing the route to the end stop and the search statistics
+     */
+    public ShortestPathTree searchRoute(Stop start, Stop end, TransportSet transports, RouteStrategy strategy) {
+        return strategy.searchRoute(this, start, end, transports);
+    }
+
+    /**
+     * Searches for a route between two stops with a given algorithm
+     * @param start Start Stop
+     * @param end End Stop
+     * @param transports List of Transports to be considered
+     * @param criterion Optimization criterion
+     * @param searchMode Algorithm to use
+     * @return ShortestPathTree containing the route to the end stop and the search statistics
+     */
+    public ShortestPathTree searchRoute(Stop start, Stop end, List<Transport> transports, Criterion criterion, SearchMode searchMode) {
+        return searchRoute(start, end, TransportSet.of(transports), criterion, searchMode);
+    }
+
+    /**
+     * Searches for a route between two stops with a given algorithm
+     * @param start Start Stop
+     * @param end End Stop
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @param searchMode Algorithm to use
+     * @return ShortestPathTree containing the route to the end stop and the search statistics
+     */
+    public ShortestPathTree searchRoute(Stop start, Stop end, TransportSet transports, Criterion criterion, SearchMode searchMode) {
+        RoutingGraph routingGraph = getRoutingGraph();
+
+        return searchRoute(routingGraph, routingGraph.getId(start), routingGraph.getId(end), transports, criterion, searchMode);
+    }
+
+    /**
+     * Searches for a route between two stops of a snapshot with a given algorithm
+     */
+    private ShortestPathTree searchRoute(RoutingGraph routingGraph, int source, int target, TransportSet transports,
+                                         Criterion criterion, SearchMode searchMode) {
+        return switch (searchMode) {
+            case BELLMAN_FORD -> BellmanFord.search(routingGraph, source, transports, criterion);
+            case DIJKSTRA -> Dijkstra.search(routingGraph, source, target, transports, criterion);
+            case ASTAR -> Dijkstra.searchAStar(routingGraph, source, target, transports, criterion);
+            case ALT -> Dijkstra.searchALT(routingGraph, source, target, transports, criterion);
+            case BIDIRECTIONAL -> BidirectionalDijkstra.search(routingGraph, source, target, transports, criterion);
+            case OVERLAY -> routePlanner.search(routingGraph, source, target, transports, criterion);
+            case CONTRACTION_HIERARCHIES -> {
+                // While the hierarchy is built, the plain search answers: the overlay may need customising too
+                ContractionHierarchy hierarchy = hierarchies.get(routingGraph, transports, criterion);
+                yield hierarchy != null ? hierarchy.search(source, target)
+                        : Dijkstra.search(routingGraph, source, target, transports, criterion);
+            }
+        };
     }
 
     /**
@@ -205,66 +491,216 @@ public class TransportsMap extends GraphEdgeList<Stop, Route> implements Observa
      * @param criterion Optimization criterion
      * @return Map containing the shortest path between the Stops
      */
-    public Map<Stop, RouteInfo> BellmanFord(Stop start, List<Transport> transports, String criterion) {
-        Map<Stop, RouteInfo> results = new HashMap<>();
+    public Map<Stop, RouteInfo> BellmanFord(Stop start, List<Transport> transports, Criterion criterion) {
+        return BellmanFord(start, TransportSet.of(transports), criterion);
+    }
 
-        for (Vertex<Stop> vertex : vertices()) {
-            results.put(vertex.element(), new RouteInfo(null, null, null, null, Float.POSITIVE_INFINITY, criterion));
-        }
+    /**
+     * Calculates the shortest path between two Stops using the Bellman-Ford algorithm
+     * @param start Start Stop
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @return Map containing the shortest path between the Stops
+     */
+    public Map<Stop, RouteInfo> BellmanFord(Stop start, TransportSet transports, Criterion criterion) {
+        RoutingGraph routingGraph = getRoutingGraph();
 
-        results.put(start, new RouteInfo(null, start, null, null, 0, criterion));
+        return BellmanFord.search(routingGraph, routingGraph.getId(start), transports, criterion).toRouteInfoMap();
+    }
 
-        for (int i = 0; i < vertices().size() - 1; i++) {
-            for (Edge<Route, Stop> edge : edges()) {
-                if(edge.element().isActive()){
-                    relaxEdge(results, edge, transports);
-                }
-            }
-        }
+    /**
+     * Calculates the shortest path between two Stops using the Dijkstra algorithm over the shifted values
+     * @param start Start Stop
+     * @param transports List of Transports to be considered
+     * @param criterion Optimization criterion
+     * @return Map containing the shortest path between the Stops, with the exact cost to arrive at each Stop
+     */
+    public Map<Stop, RouteInfo> Dijkstra(Stop start, List<Transport> transports, Criterion criterion) {
+        return Dijkstra(start, TransportSet.of(transports), criterion);
+    }
 
-        for (Edge<Route, Stop> edge : edges()) {
-            if (!edge.element().isActive()) {
-                continue;
-            }
-            if (relaxEdge(results, edge, transports)) {
-                throw new IllegalArgumentException("O grafo contém um ciclo negativo");
-            }
+    /**
+     * Calculates the shortest path between two Stops using the Dijkstra algorithm over the shifted values
+     * @param start Start Stop
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @return Map containing the shortest path between the Stops, with the exact cost to arrive at each Stop
+     */
+    public Map<Stop, RouteInfo> Dijkstra(Stop start, TransportSet transports, Criterion criterion) {
+        RoutingGraph routingGraph = getRoutingGraph();
+
+        return treeCache.getOrBuild(routingGraph, routingGraph.getId(start), transports, criterion).toRouteInfoMap();
+    }
+
+    /**
+     * Calculates the costs from one stop to many stops
+     * @param origin Start Stop
+     * @param destinations End Stops
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @param withPaths True to keep the search tree, so the paths can be rebuilt
+     * @return RouteMatrix with a single row
+     */
+    public RouteMatrix calculateMatrix(Stop origin, List<Stop> destinations, TransportSet transports, Criterion criterion, boolean withPaths) {
+        return calculateMatrix(List.of(origin), destinations, transports, criterion, withPaths);
+    }
+
+    /**
+     * Calculates the costs between every origin and every destination, with one search per origin.
+     * The searches run in parallel in the common ForkJoinPool
+     * @param origins Start Stops
+     * @param destinations End Stops
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @param withPaths True to keep the search trees, so the paths can be rebuilt
+     * @return RouteMatrix with one row per origin and one column per destination
+     */
+    public RouteMatrix calculateMatrix(List<Stop> origins, List<Stop> destinations, TransportSet transports, Criterion criterion, boolean withPaths) {
+        RoutingGraph routingGraph = getRoutingGraph();
+        int[] sources = origins.stream().mapToInt(routingGraph::getId).toArray();
+        int[] targets = destinations.stream().mapToInt(routingGraph::getId).toArray();
+
+        return RouteMatrix.compute(routingGraph, sources, targets, transports, criterion, withPaths, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns the routing snapshot of the network, rebuilding it if the network changed since the last call
+     * @return RoutingGraph of the current network
+     */
+    public synchronized RoutingGraph getRoutingGraph() {
+        if(routingGraph == null) {
+            routingGraph = RoutingGraph.build(this, staleRoutingGraph);
+            staleRoutingGraph = null;
         }
 
-        return results;
+        return routingGraph;
     }
 
     /**
-     * Relaxes an Edge
-     * @param results Map containing the results
-     * @param edge Edge to be relaxed
-     * @param transports List of Transports to be considered
-     * @return True if the Edge was relaxed. False otherwise
+     * Returns the Contraction Hierarchies of the network
+     * @return ContractionHierarchies object
+     */
+    public ContractionHierarchies getHierarchies() {
+        return hierarchies;
+    }
+
+    /**
+     * Returns the cache of the complete shortest path trees of each start stop
+     * @return ShortestPathTreeCache object
+     */
+    public ShortestPathTreeCache getTreeCache() {
+        return treeCache;
+    }
+
+    /**
+     * Returns the routing snapshot of the network together with its version, read at the same time
      */
-    private boolean relaxEdge(Map<Stop, RouteInfo> results, Edge<Route, Stop> edge, List<Transport> transports) {
-        Stop u = edge.vertices()[0].element();
-        Stop v = edge.vertices()[1].element();
-        boolean relaxed = false;
+    private synchronized Snapshot getSnapshot() {
+        return new Snapshot(networkVersion, getRoutingGraph());
+    }
 
+    /**
+     * Returns the version of the network, incremented every time a stop or route changes
+     * @return Network version
+     */
+    public synchronized long getNetworkVersion() {
+        return networkVersion;
+    }
 
-        for (Transport transport : transports) {
-            Float value = routeStrategy.getValueByCriterion(edge.element(), transport);
+    /**
+     * Discards the routing snapshot so that it is rebuilt on the next query (keeping the landmark
+     * tables of the unchanged criteria), rebuilds the Contraction Hierarchies in the background
+     * and increments the network version
+     */
+    private synchronized void invalidateRoutingGraph() {
+        networkVersion++;
+        if(routingGraph != null) staleRoutingGraph = routingGraph;
+        routingGraph = null;
+        hierarchies.invalidate();
+    }
 
-            if (value != null) {
-                // Adiciona-se 10000 ao valor para evitar ciclos negativos
-                value = value + 5;
+    @Override
+    public Vertex<Stop> insertVertex(Stop stop) throws InvalidVertexException {
+        Vertex<Stop> vertex = super.insertVertex(stop);
+        indexVertex(vertex);
+        centrality.add(vertex);
+        invalidateRoutingGraph();
+        return vertex;
+    }
 
-                if (results.get(v).costToArrive > results.get(u).costToArrive + value) {
-                    results.put(v, new RouteInfo(u, v, edge.element(), transport, results.get(u).costToArrive + value, results.get(u).criterion));
-                    relaxed = true;
-                }
-                if (results.get(u).costToArrive > results.get(v).costToArrive + value) {
-                    results.put(u, new RouteInfo(v, u, edge.element(), transport, results.get(v).costToArrive + value, results.get(v).criterion));
-                    relaxed = true;
-                }
-            }
+    @Override
+    public Edge<Route, Stop> insertEdge(Vertex<Stop> u, Vertex<Stop> v, Route route) throws InvalidVertexException, InvalidEdgeException {
+        Edge<Route, Stop> edge = super.insertEdge(u, v, route);
+        route.addObserver(this);
+        trackRoute(edge);
+        invalidateRoutingGraph();
+        return edge;
+    }
+
+    @Override
+    public Edge<Route, Stop> insertEdge(Stop start, Stop end, Route route) throws InvalidVertexException, InvalidEdgeException {
+        Edge<Route, Stop> edge = super.insertEdge(start, end, route);
+        route.addObserver(this);
+        trackRoute(edge);
+        invalidateRoutingGraph();
+        return edge;
+    }
+
+    @Override
+    public Stop removeVertex(Vertex<Stop> v) throws InvalidVertexException {
+        for(Edge<Route, Stop> edge : incidentEdges(v)) {
+            edge.element().removeObserver(this);
+            untrackRoute(edge.element());
+        }
+
+        Stop stop = super.removeVertex(v);
+        unindexVertex(v, stop);
+        centrality.remove(v);
+        invalidateRoutingGraph();
+        return stop;
+    }
+
+    @Override
+    public Route removeEdge(Edge<Route, Stop> e) throws InvalidEdgeException {
+        Route route = super.removeEdge(e);
+        route.removeObserver(this);
+        untrackRoute(route);
+        invalidateRoutingGraph();
+        return route;
+    }
+
+    @Override
+    public Stop replace(Vertex<Stop> v, Stop newStop) throws InvalidVertexException {
+        Stop oldStop = super.replace(v, newStop);
+        unindexVertex(v, oldStop);
+        indexVertex(v);
+        invalidateRoutingGraph();
+        return oldStop;
+    }
+
+    @Override
+    public Route replace(Edge<Route, Stop> e, Route newRoute) throws InvalidEdgeException {
+        Route oldRoute = super.replace(e, newRoute);
+        oldRoute.removeObserver(this);
+        newRoute.addObserver(this);
+        untrackRoute(oldRoute);
+        trackRoute(e);
+        invalidateRoutingGraph();
+        return oldRoute;
+    }
+
+    /**
+     * Receives the changes made to the routes of the network
+     * @param subject Route that changed
+     * @param arg Optional object type to notify
+     */
+    @Override
+    public void update(Observable subject, Object arg) {
+        if(subject instanceof Route route) {
+            TrackedRoute tracked = trackedRoutes.get(route);
+            if(tracked != null) updateRoute(tracked, route.isActive(), transportMask(route));
         }
-        return relaxed;
+        invalidateRoutingGraph();
     }
 
     /**
@@ -279,21 +715,75 @@ public class TransportsMap extends GraphEdgeList<Stop, Route> implements Observa
     /**
      * Gets the transports of a stop
      * @param stopCode Stop code
-     * @return Set containing the transports of the given stop
+     * @return Set containing the transports of the active routes of the given stop
      */
-    public Set<Transport> getStopTransports(String stopCode){
-        Set<Transport> transports = new HashSet<>();
-        for(Route route : routes){
-            if(route.getStartStopCode().equals(stopCode) || route.getEndStopCode().equals(stopCode)){
-                HashMap<Transport, Float> distances = route.getDistances();
+    public TransportSet getStopTransports(String stopCode){
+        StopTransports transports = stopTransports.get(stopCode);
+        return TransportSet.fromMask(transports == null ? 0 : transports.mask);
+    }
 
-                for(Transport transport : distances.keySet()){
-                    if(distances.get(transport) != null) transports.add(transport);
-                }
-            }
+    /**
+     * Returns the transports a route offers
+     * @param route Route object
+     * @return Bitmask of the available transports. 0 if the route is inactive
+     */
+    private static int transportMask(Route route) {
+        if(!route.isActive()) return 0;
+
+        int mask = 0;
+        for(Transport transport : Transport.values()) {
+            if(!Float.isNaN(route.getDistance(transport))) mask |= 1 << transport.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * Counts the transports and the centrality of the stops of a route that entered the graph
+     * @param edge Edge of the route
+     */
+    private void trackRoute(Edge<Route, Stop> edge) {
+        Route route = edge.element();
+        Vertex<Stop>[] vertices = edge.vertices();
+        TrackedRoute tracked = new TrackedRoute(route, vertices[0], vertices[1]);
+        trackedRoutes.put(route, tracked);
+        updateRoute(tracked, route.isActive(), transportMask(route));
+    }
+
+    /**
+     * Removes what was counted for a route that left the graph from its stops
+     * @param route Route object
+     */
+    private void untrackRoute(Route route) {
+        TrackedRoute tracked = trackedRoutes.remove(route);
+        if(tracked != null) updateRoute(tracked, false, 0);
+    }
+
+    /**
+     * Updates the transports and the centrality of the stops of a route, given its new state
+     */
+    private void updateRoute(TrackedRoute tracked, boolean active, int mask) {
+        updateStopTransports(tracked.route, tracked.transports, mask);
+        tracked.transports = mask;
+
+        if(active != tracked.active) {
+            int delta = active ? 1 : -1;
+            centrality.change(tracked.start, delta);
+            if(tracked.end != tracked.start) centrality.change(tracked.end, delta);
+            tracked.active = active;
         }
+    }
+
+    /**
+     * Moves the counts of both stops of a route from one bitmask of transports to another
+     */
+    private void updateStopTransports(Route route, int oldMask, int mask) {
+        if(oldMask == mask) return;
 
-        return transports;
+        for(String stopCode : new String[]{route.getStartStopCode(), route.getEndStopCode()}) {
+            StopTransports transports = stopTransports.computeIfAbsent(stopCode, code -> new StopTransports());
+            transports.update(oldMask, mask);
+            if(transports.mask == 0) stopTransports.remove(stopCode);
+        }
     }
 
     @Override
@@ -315,6 +805,48 @@ public class TransportsMap extends GraphEdgeList<Stop, Route> implements Observa
         }
     }
 
+    /**
+     * Number of active routes of a stop that offer each transport
+     */
+    private static final class StopTransports {
+        private final int[] counts = new int[Transport.values().length];
+        private int mask;
+
+        private void update(int oldMask, int newMask) {
+            for(int t = 0; t < counts.length; t++) {
+                int bit = 1 << t;
+                if((oldMask & bit) != 0) counts[t]--;
+                if((newMask & bit) != 0) counts[t]++;
+                if(counts[t] > 0) mask |= bit;
+                else mask &= ~bit;
+            }
+        }
+    }
+
+    /**
+     * Route in the graph, with its stops and what was last counted for it
+     */
+    private static final class TrackedRoute {
+        private final Route route;
+        private final Vertex<Stop> start;
+        private final Vertex<Stop> end;
+        private int transports;
+        private boolean active;
+
+        private TrackedRoute(Route route, Vertex<Stop> start, Vertex<Stop> end) {
+            this.route = route;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Immutable view of the network used by a query
+     * @param version Version of the network
+     * @param graph RoutingGraph of that version
+     */
+    private record Snapshot(long version, RoutingGraph graph) {}
+
     /**
      * RouteInfo class
      */
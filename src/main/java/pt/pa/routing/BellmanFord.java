@@ -0,0 +1,248 @@
+package pt.pa.routing;
+
+import pt.pa.model.Criterion;
+import pt.pa.model.TransportSet;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bellman-Ford single-source search over the shifted values of a RoutingGraph.
+ * The search stops as soon as a pass doesn't improve any stop. The costs in the returned tree are the
+ * exact values of the routes taken, without the shift. A last pass checks for negative cycles. On large graphs the edges of each pass
+ * are split between the threads of a ForkJoinPool, and each stop's cost and predecessor are updated
+ * together with a compare-and-set
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public class BellmanFord {
+    /**
+     * Minimum number of routes for the passes to be split between threads
+     */
+    public static final int PARALLEL_THRESHOLD = 4096;
+
+    // Routes relaxed by each task of a parallel pass
+    private static final int MIN_CHUNK = 1024;
+
+    /**
+     * Calculates the shortest paths from a stop to every other stop, in parallel in the common
+     * ForkJoinPool when the graph is large enough
+     * @param graph RoutingGraph to search
+     * @param source Source stop id
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @return ShortestPathTree rooted at the source
+     */
+    public static ShortestPathTree search(RoutingGraph graph, int source, TransportSet transports, Criterion criterion) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if(graph.numEdges() < PARALLEL_THRESHOLD || pool.getParallelism() < 2) {
+            return search(graph, source, transports, criterion, null);
+        }
+
+        return search(graph, source, transports, criterion, pool);
+    }
+
+    /**
+     * Calculates the shortest paths from a stop to every other stop
+     * @param graph RoutingGraph to search
+     * @param source Source stop id
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @param pool ForkJoinPool that relaxes the routes of each pass (null to search in the current thread)
+     * @return ShortestPathTree rooted at the source
+     */
+    public static ShortestPathTree search(RoutingGraph graph, int source, TransportSet transports, Criterion criterion, ForkJoinPool pool) {
+        int n = graph.numStops();
+        int m = graph.numEdges();
+
+        MinimumWeights minimum = graph.getMinimumWeights(criterion, transports);
+        float shift = graph.getShift(criterion);
+
+        // Shifted cost to arrive at each stop; the exact costs are rebuilt from the predecessors at the end
+        float[] costs = new float[n];
+        int[] predEdges = new int[n];
+        int[] predTransports = new int[n];
+        Arrays.fill(costs, Float.POSITIVE_INFINITY);
+        Arrays.fill(predEdges, -1);
+        Arrays.fill(predTransports, -1);
+        costs[source] = 0;
+
+        int passes = pool == null
+                ? relaxSequential(graph, minimum, shift, costs, predEdges, predTransports)
+                : relaxParallel(graph, minimum, shift, costs, predEdges, predTransports, pool);
+
+        for(int e = 0; e < m; e++) {
+            if(relaxEdge(graph, e, minimum, shift, costs, predEdges, predTransports)) {
+                throw new IllegalArgumentException("O grafo contém um ciclo negativo");
+            }
+        }
+
+        // Every pass, including the last check, examines the routes of every stop once
+        return new ShortestPathTree(graph, criterion, source, ShortestPathTree.pathCosts(graph, minimum, source, predEdges),
+                predEdges, predTransports, (passes + 1) * n);
+    }
+
+    /**
+     * Runs the passes in the current thread
+     * @return Number of passes
+     */
+    private static int relaxSequential(RoutingGraph graph, MinimumWeights minimum, float shift,
+                                       float[] costs, int[] predEdges, int[] predTransports) {
+        int n = graph.numStops();
+        int m = graph.numEdges();
+
+        for(int i = 0; i < n - 1; i++) {
+            boolean relaxed = false;
+            for(int e = 0; e < m; e++) {
+                relaxed |= relaxEdge(graph, e, minimum, shift, costs, predEdges, predTransports);
+            }
+            if(!relaxed) return i + 1;
+        }
+
+        return Math.max(n - 1, 0);
+    }
+
+    /**
+     * Runs the passes in a ForkJoinPool. Each stop is kept in a long: the bits of the cost in the
+     * high half and the edge and transport used to arrive in the low half
+     * @return Number of passes
+     */
+    private static int relaxParallel(RoutingGraph graph, MinimumWeights minimum, float shift,
+                                     float[] costs, int[] predEdges, int[] predTransports, ForkJoinPool pool) {
+        int n = graph.numStops();
+        int m = graph.numEdges();
+
+        AtomicLongArray state = new AtomicLongArray(n);
+        for(int v = 0; v < n; v++) {
+            state.set(v, pack(costs[v], -1));
+        }
+
+        int chunk = Math.max(MIN_CHUNK, m / (4 * pool.getParallelism()));
+        int passes = Math.max(n - 1, 0);
+        for(int i = 0; i < n - 1; i++) {
+            if(!pool.invoke(new Pass(graph, minimum, shift, state, 0, m, chunk))) {
+                passes = i + 1;
+                break;
+            }
+        }
+
+        for(int v = 0; v < n; v++) {
+            long value = state.get(v);
+            int pred = (int) value;
+            costs[v] = Float.intBitsToFloat((int) (value >>> 32));
+            predEdges[v] = pred < 0 ? -1 : pred / RoutingGraph.TRANSPORTS;
+            predTransports[v] = pred < 0 ? -1 : pred % RoutingGraph.TRANSPORTS;
+        }
+
+        return passes;
+    }
+
+    private static long pack(float cost, int pred) {
+        return (long) Float.floatToIntBits(cost) << 32 | (pred & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Relaxes an edge in both directions
+     * @param graph RoutingGraph being searched
+     * @param e Edge id
+     * @param minimum Cheapest value and transport of each edge
+     * @param shift Value added to every route
+     * @param costs Shifted cost to arrive at each stop
+     * @param predEdges Edge used to arrive at each stop
+     * @param predTransports Transport used to arrive at each stop
+     * @return True if the edge was relaxed. False otherwise
+     */
+    private static boolean relaxEdge(RoutingGraph graph, int e, MinimumWeights minimum, float shift,
+                                     float[] costs, int[] predEdges, int[] predTransports) {
+        int u = graph.edgeSource[e];
+        int v = graph.edgeTarget[e];
+        boolean relaxed = false;
+
+        int t = minimum.bestTransports[e];
+        if(t < 0) return false;
+        float value = minimum.values[e] + shift;
+
+        if(costs[v] > costs[u] + value) {
+            costs[v] = costs[u] + value;
+            predEdges[v] = e;
+            predTransports[v] = t;
+            relaxed = true;
+        }
+        if(costs[u] > costs[v] + value) {
+            costs[u] = costs[v] + value;
+            predEdges[u] = e;
+            predTransports[u] = t;
+            relaxed = true;
+        }
+
+        return relaxed;
+    }
+
+    /**
+     * Task that relaxes a range of edges of a parallel pass
+     */
+    private static class Pass extends RecursiveTask<Boolean> {
+        private static final long serialVersionUID = 1L;
+
+        private final RoutingGraph graph;
+        private final MinimumWeights minimum;
+        private final float shift;
+        private final AtomicLongArray state;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        private Pass(RoutingGraph graph, MinimumWeights minimum, float shift, AtomicLongArray state, int from, int to, int chunk) {
+            this.graph = graph;
+            this.minimum = minimum;
+            this.shift = shift;
+            this.state = state;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if(to - from > chunk) {
+                int middle = (from + to) >>> 1;
+                Pass left = new Pass(graph, minimum, shift, state, from, middle, chunk);
+                left.fork();
+                boolean relaxed = new Pass(graph, minimum, shift, state, middle, to, chunk).compute();
+                return left.join() | relaxed;
+            }
+
+            boolean relaxed = false;
+            for(int e = from; e < to; e++) {
+                int t = minimum.bestTransports[e];
+                if(t < 0) continue;
+
+                float value = minimum.values[e] + shift;
+                int pred = e * RoutingGraph.TRANSPORTS + t;
+                relaxed |= relax(graph.edgeSource[e], graph.edgeTarget[e], value, pred);
+                relaxed |= relax(graph.edgeTarget[e], graph.edgeSource[e], value, pred);
+            }
+
+            return relaxed;
+        }
+
+        /**
+         * Lowers the cost of a stop if the route from another stop is cheaper, retrying if another thread
+         * changed the stop in the meantime
+         */
+        private boolean relax(int from, int to, float value, int pred) {
+            float candidate = Float.intBitsToFloat((int) (state.get(from) >>> 32)) + value;
+
+            while(true) {
+                long current = state.get(to);
+                if(!(Float.intBitsToFloat((int) (current >>> 32)) > candidate)) return false;
+                if(state.compareAndSet(to, current, pack(candidate, pred))) return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package pt.pa.routing;
+
+import pt.pa.model.Criterion;
+import pt.pa.model.TransportSet;
+
+/**
+ * Bidirectional Dijkstra search over the shifted values of a RoutingGraph.
+ * A forward search from the start stop and a backward search from the end stop run alternately
+ * and stop once they can no longer improve the best path where they meet. Routes are undirected,
+ * so the backward search uses the same arcs as the forward one
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public class BidirectionalDijkstra {
+    /**
+     * Calculates the shortest path between two stops
+     * @param graph RoutingGraph to search
+     * @param source Source stop id
+     * @param target Target stop id
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @return ShortestPathTree with the path from the source to the target
+     */
+    public static ShortestPathTree search(RoutingGraph graph, int source, int target, TransportSet transports, Criterion criterion) {
+        int n = graph.numStops();
+        float shift = graph.getShift(criterion);
+
+        MinimumWeights minimum = graph.getMinimumWeights(criterion, transports);
+        float[] values = minimum.values;
+        int[] bestTransports = minimum.bestTransports;
+
+        // Each side keeps its state in one of the two workspaces of the thread
+        SearchWorkspace forward = SearchWorkspace.acquire(n);
+        SearchWorkspace backward = forward.other(n);
+        forward.reach(source, 0, -1, -1, -1);
+        forward.heap().insertOrDecrease(source, 0);
+        backward.reach(target, 0, -1, -1, -1);
+        backward.heap().insertOrDecrease(target, 0);
+
+        float best = source == target ? 0 : Float.POSITIVE_INFINITY;
+        int meetForward = source;
+        int meetBackward = target;
+        int meetEdge = -1;
+        int meetTransport = -1;
+        int scanned = 0;
+
+        while(!forward.heap().isEmpty() && !backward.heap().isEmpty()
+                && forward.heap().peekKey() + backward.heap().peekKey() < best) {
+            boolean isForward = forward.heap().peekKey() <= backward.heap().peekKey();
+            SearchWorkspace side = isForward ? forward : backward;
+            SearchWorkspace other = isForward ? backward : forward;
+
+            int u = side.heap().poll();
+            side.settle(u);
+            scanned++;
+
+            float reducedU = side.reduced(u);
+            for(int a = graph.offsets[u]; a < graph.offsets[u + 1]; a++) {
+                int v = graph.targets[a];
+                if(side.isSettled(v)) continue;
+
+                int e = graph.arcEdges[a];
+                int t = bestTransports[e];
+                if(t < 0) continue;
+                float value = values[e];
+
+                float candidate = reducedU + value + shift;
+
+                if(candidate < side.reduced(v)) {
+                    side.reach(v, candidate, u, e, t);
+                    side.heap().insertOrDecrease(v, candidate);
+                }
+
+                if(candidate + other.reduced(v) < best) {
+                    best = candidate + other.reduced(v);
+                    meetForward = isForward ? u : v;
+                    meetBackward = isForward ? v : u;
+                    meetEdge = e;
+                    meetTransport = t;
+                }
+            }
+        }
+
+        return join(graph, criterion, source, target, forward, backward, best, meetForward, meetBackward, meetEdge, meetTransport, scanned);
+    }
+
+    /**
+     * Joins the two half paths into a single path from the source to the target
+     */
+    private static ShortestPathTree join(RoutingGraph graph, Criterion criterion, int source, int target,
+                                         SearchWorkspace forward, SearchWorkspace backward, float best, int meetForward,
+                                         int meetBackward, int meetEdge, int meetTransport, int scanned) {
+        if(Float.isInfinite(best) || meetEdge < 0) {
+            return new PathTree(graph, criterion, new int[] { source }, new int[] { -1 }, new int[] { -1 }, scanned);
+        }
+
+        int forwardLength = 0;
+        for(int v = meetForward; v != source; v = forward.predStop(v)) {
+            forwardLength++;
+        }
+        int backwardLength = 0;
+        for(int v = meetBackward; v != target; v = backward.predStop(v)) {
+            backwardLength++;
+        }
+
+        int length = forwardLength + backwardLength + 2;
+        int[] stops = new int[length];
+        int[] edges = new int[length];
+        int[] transports = new int[length];
+
+        // Forward half, from the source to the meeting point
+        for(int i = forwardLength, v = meetForward; i >= 0; i--, v = forward.predStop(v)) {
+            stops[i] = v;
+            edges[i] = forward.predEdge(v);
+            transports[i] = forward.predTransport(v);
+        }
+
+        // Meeting route and backward half, from the meeting point to the target
+        stops[forwardLength + 1] = meetBackward;
+        edges[forwardLength + 1] = meetEdge;
+        transports[forwardLength + 1] = meetTransport;
+        for(int i = forwardLength + 2, v = meetBackward; i < length; i++) {
+            stops[i] = backward.predStop(v);
+            edges[i] = backward.predEdge(v);
+            transports[i] = backward.predTransport(v);
+            v = stops[i];
+        }
+
+        return new PathTree(graph, criterion, stops, edges, transports, scanned);
+    }
+}
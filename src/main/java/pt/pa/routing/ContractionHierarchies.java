@@ -0,0 +1,86 @@
+package pt.pa.routing;
+
+import pt.pa.model.Criterion;
+import pt.pa.model.TransportSet;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Contraction Hierarchies of a network, one per criterion and set of transports.
+ * The hierarchies are built in a background thread the first time they are needed and rebuilt
+ * whenever the network changes. While the hierarchy of the current network isn't ready,
+ * get returns null and the caller must use another search
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public class ContractionHierarchies {
+    private final Supplier<RoutingGraph> graphSupplier;
+    private final Map<Integer, ContractionHierarchy> hierarchies;
+    private final Set<Integer> pending;
+    private final ExecutorService executor;
+
+    /**
+     * ContractionHierarchies constructor
+     * @param graphSupplier Supplier of the current RoutingGraph of the network
+     */
+    public ContractionHierarchies(Supplier<RoutingGraph> graphSupplier) {
+        this.graphSupplier = graphSupplier;
+        this.hierarchies = new ConcurrentHashMap<>();
+        this.pending = ConcurrentHashMap.newKeySet();
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "contraction-hierarchies");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the hierarchy of a criterion and transports if it was built from the given graph.
+     * Otherwise, schedules its construction and returns null
+     * @param graph Current RoutingGraph of the network
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @return ContractionHierarchy or null if it isn't ready
+     */
+    public ContractionHierarchy get(RoutingGraph graph, TransportSet transports, Criterion criterion) {
+        int key = RoutingGraph.key(criterion, transports);
+        ContractionHierarchy hierarchy = hierarchies.get(key);
+
+        if(hierarchy != null && hierarchy.getGraph() == graph) {
+            return hierarchy;
+        }
+
+        schedule(key, criterion, transports);
+        return null;
+    }
+
+    /**
+     * Rebuilds, in the background, every hierarchy built so far (called when the network changes)
+     */
+    public void invalidate() {
+        for(ContractionHierarchy hierarchy : hierarchies.values()) {
+            schedule(RoutingGraph.key(hierarchy.getCriterion(), hierarchy.getTransports()), hierarchy.getCriterion(), hierarchy.getTransports());
+        }
+    }
+
+    /**
+     * Schedules the construction of a hierarchy, unless it's already scheduled
+     */
+    private void schedule(int key, Criterion criterion, TransportSet transports) {
+        if(!pending.add(key)) return;
+
+        executor.execute(() -> {
+            // Cleared before building, so changes made during the build schedule a new one
+            pending.remove(key);
+            hierarchies.put(key, ContractionHierarchy.build(graphSupplier.get(), criterion, transports));
+        });
+    }
+}
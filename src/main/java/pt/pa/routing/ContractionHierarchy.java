@@ -0,0 +1,484 @@
+package pt.pa.routing;
+
+import pt.pa.model.Criterion;
+import pt.pa.model.TransportSet;
+
+import java.util.Arrays;
+
+/**
+ * Contraction Hierarchies index of a RoutingGraph for one criterion and one set of transports.
+ * Stops are contracted one at a time (cheapest first, by edge difference), adding shortcut arcs
+ * whenever a witness search can't find a path around the contracted stop. Queries then only need
+ * a bidirectional search over the arcs that go up in the hierarchy
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public class ContractionHierarchy {
+    /**
+     * Maximum number of stops settled by each witness search
+     */
+    private static final int WITNESS_SETTLE_LIMIT = 200;
+
+    private final RoutingGraph graph;
+    private final Criterion criterion;
+    private final TransportSet transports;
+
+    // Arcs of the hierarchy (original routes and shortcuts)
+    private int[] arcFrom;
+    private int[] arcTo;
+    private float[] arcWeights;
+    private int[] arcEdges;
+    private int[] arcTransports;
+    private int[] arcMiddles;
+    private int[] arcFirstChildren;
+    private int[] arcSecondChildren;
+    private int numArcs;
+
+    // Upward arcs of each stop, in compressed-sparse-row form
+    private int[] upOffsets;
+    private int[] upArcs;
+
+    private final int[] ranks;
+
+    private ContractionHierarchy(RoutingGraph graph, Criterion criterion, TransportSet transports) {
+        this.graph = graph;
+        this.criterion = criterion;
+        this.transports = transports;
+        this.ranks = new int[graph.numStops()];
+    }
+
+    /**
+     * Returns the graph the index was built from
+     * @return RoutingGraph object
+     */
+    public RoutingGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the criterion of the index
+     * @return Criterion object
+     */
+    public Criterion getCriterion() {
+        return criterion;
+    }
+
+    /**
+     * Returns the transports considered by the index
+     * @return Set of Transports
+     */
+    public TransportSet getTransports() {
+        return transports;
+    }
+
+    /**
+     * Returns the number of shortcuts added during preprocessing
+     * @return Number of shortcuts
+     */
+    public int getNumShortcuts() {
+        int shortcuts = 0;
+        for(int a = 0; a < numArcs; a++) {
+            if(arcMiddles[a] >= 0) shortcuts++;
+        }
+        return shortcuts;
+    }
+
+    /**
+     * Builds the index of a criterion and a set of transports
+     * @param graph RoutingGraph to preprocess
+     * @param criterion Optimization criterion
+     * @param transports Set of Transports to be considered
+     * @return ContractionHierarchy of the graph
+     */
+    public static ContractionHierarchy build(RoutingGraph graph, Criterion criterion, TransportSet transports) {
+        ContractionHierarchy hierarchy = new ContractionHierarchy(graph, criterion, transports);
+        hierarchy.contract();
+        return hierarchy;
+    }
+
+    /**
+     * Adds the original routes as arcs, keeping the cheapest considered transport of each route
+     */
+    private void addOriginalArcs() {
+        int m = graph.numEdges();
+        float shift = graph.getShift(criterion);
+        MinimumWeights minimum = graph.getMinimumWeights(criterion, transports);
+
+        arcFrom = new int[Math.max(16, 2 * m)];
+        arcTo = new int[arcFrom.length];
+        arcWeights = new float[arcFrom.length];
+        arcEdges = new int[arcFrom.length];
+        arcTransports = new int[arcFrom.length];
+        arcMiddles = new int[arcFrom.length];
+        arcFirstChildren = new int[arcFrom.length];
+        arcSecondChildren = new int[arcFrom.length];
+
+        for(int e = 0; e < m; e++) {
+            int bestTransport = minimum.bestTransports[e];
+            if(bestTransport >= 0 && graph.edgeSource[e] != graph.edgeTarget[e]) {
+                addArc(graph.edgeSource[e], graph.edgeTarget[e], minimum.values[e] + shift, e, bestTransport, -1, -1, -1);
+            }
+        }
+    }
+
+    private int addArc(int from, int to, float weight, int edge, int transport, int middle, int firstChild, int secondChild) {
+        if(numArcs == arcFrom.length) {
+            int capacity = numArcs * 2;
+            arcFrom = Arrays.copyOf(arcFrom, capacity);
+            arcTo = Arrays.copyOf(arcTo, capacity);
+            arcWeights = Arrays.copyOf(arcWeights, capacity);
+            arcEdges = Arrays.copyOf(arcEdges, capacity);
+            arcTransports = Arrays.copyOf(arcTransports, capacity);
+            arcMiddles = Arrays.copyOf(arcMiddles, capacity);
+            arcFirstChildren = Arrays.copyOf(arcFirstChildren, capacity);
+            arcSecondChildren = Arrays.copyOf(arcSecondChildren, capacity);
+        }
+
+        arcFrom[numArcs] = from;
+        arcTo[numArcs] = to;
+        arcWeights[numArcs] = weight;
+        arcEdges[numArcs] = edge;
+        arcTransports[numArcs] = transport;
+        arcMiddles[numArcs] = middle;
+        arcFirstChildren[numArcs] = firstChild;
+        arcSecondChildren[numArcs] = secondChild;
+
+        return numArcs++;
+    }
+
+    /**
+     * Contracts every stop and builds the upward graph used by the queries
+     */
+    private void contract() {
+        int n = graph.numStops();
+        addOriginalArcs();
+
+        Contraction state = new Contraction(n);
+        for(int a = 0; a < numArcs; a++) {
+            state.attach(arcFrom[a], a);
+            state.attach(arcTo[a], a);
+        }
+
+        IndexedMinHeap queue = new IndexedMinHeap(n);
+        for(int v = 0; v < n; v++) {
+            queue.insertOrDecrease(v, priority(state, v));
+        }
+
+        int rank = 0;
+        while(!queue.isEmpty()) {
+            int v = queue.poll();
+
+            // Lazy update: the priority may have grown since the stop was queued
+            float current = priority(state, v);
+            if(!queue.isEmpty() && current > queue.peekKey()) {
+                queue.insertOrDecrease(v, current);
+                continue;
+            }
+
+            contractStop(state, v, true);
+            state.contracted[v] = true;
+            ranks[v] = rank++;
+
+            for(int i = 0; i < state.adjacencySizes[v]; i++) {
+                state.contractedNeighbours[other(state.adjacency[v][i], v)]++;
+            }
+        }
+
+        buildUpwardGraph();
+    }
+
+    /**
+     * Returns the contraction priority of a stop (edge difference plus contracted neighbours)
+     */
+    private float priority(Contraction state, int v) {
+        int shortcuts = contractStop(state, v, false);
+        int degree = 0;
+        for(int i = 0; i < state.adjacencySizes[v]; i++) {
+            if(!state.contracted[other(state.adjacency[v][i], v)]) degree++;
+        }
+
+        return shortcuts - degree + state.contractedNeighbours[v];
+    }
+
+    /**
+     * Finds (and optionally adds) the shortcuts needed to contract a stop
+     * @param state Contraction state
+     * @param v Stop to contract
+     * @param add True to add the shortcuts. False to only count them
+     * @return Number of shortcuts needed
+     */
+    private int contractStop(Contraction state, int v, boolean add) {
+        // Cheapest arc to each remaining neighbour
+        int neighbours = 0;
+        for(int i = 0; i < state.adjacencySizes[v]; i++) {
+            int arc = state.adjacency[v][i];
+            int u = other(arc, v);
+            if(state.contracted[u]) continue;
+
+            if(state.bestArc[u] < 0) {
+                state.neighbours[neighbours++] = u;
+                state.bestArc[u] = arc;
+            } else if(arcWeights[arc] < arcWeights[state.bestArc[u]]) {
+                state.bestArc[u] = arc;
+            }
+        }
+
+        float maxWeight = 0;
+        for(int i = 0; i < neighbours; i++) {
+            maxWeight = Math.max(maxWeight, arcWeights[state.bestArc[state.neighbours[i]]]);
+        }
+
+        int shortcuts = 0;
+        for(int i = 0; i < neighbours; i++) {
+            int u = state.neighbours[i];
+            float toU = arcWeights[state.bestArc[u]];
+
+            witnessSearch(state, u, v, toU + maxWeight);
+
+            for(int j = i + 1; j < neighbours; j++) {
+                int x = state.neighbours[j];
+                float viaV = toU + arcWeights[state.bestArc[x]];
+
+                if(state.witnessCosts[x] > viaV) {
+                    shortcuts++;
+                    if(add) {
+                        int arc = addArc(u, x, viaV, -1, -1, v, state.bestArc[u], state.bestArc[x]);
+                        state.attach(u, arc);
+                        state.attach(x, arc);
+                    }
+                }
+            }
+
+            state.clearWitness();
+        }
+
+        for(int i = 0; i < neighbours; i++) {
+            state.bestArc[state.neighbours[i]] = -1;
+        }
+
+        return shortcuts;
+    }
+
+    /**
+     * Local Dijkstra that ignores the stop being contracted, limited by cost and settled stops
+     */
+    private void witnessSearch(Contraction state, int source, int ignored, float limit) {
+        state.witnessCosts[source] = 0;
+        state.touched[state.numTouched++] = source;
+        state.heap.insertOrDecrease(source, 0);
+
+        int settled = 0;
+        while(!state.heap.isEmpty() && settled < WITNESS_SETTLE_LIMIT) {
+            if(state.heap.peekKey() > limit) break;
+            int u = state.heap.poll();
+            settled++;
+
+            for(int i = 0; i < state.adjacencySizes[u]; i++) {
+                int arc = state.adjacency[u][i];
+                int w = other(arc, u);
+                if(w == ignored || state.contracted[w]) continue;
+
+                float candidate = state.witnessCosts[u] + arcWeights[arc];
+                if(candidate < state.witnessCosts[w]) {
+                    if(Float.isInfinite(state.witnessCosts[w])) state.touched[state.numTouched++] = w;
+                    state.witnessCosts[w] = candidate;
+                    state.heap.insertOrDecrease(w, candidate);
+                }
+            }
+        }
+        state.heap.clear();
+    }
+
+    /**
+     * Keeps, for each stop, only the arcs that lead to higher-ranked stops
+     */
+    private void buildUpwardGraph() {
+        int n = graph.numStops();
+        upOffsets = new int[n + 1];
+        for(int a = 0; a < numArcs; a++) {
+            upOffsets[lower(a) + 1]++;
+        }
+        for(int v = 0; v < n; v++) {
+            upOffsets[v + 1] += upOffsets[v];
+        }
+
+        upArcs = new int[numArcs];
+        int[] next = Arrays.copyOf(upOffsets, n);
+        for(int a = 0; a < numArcs; a++) {
+            upArcs[next[lower(a)]++] = a;
+        }
+    }
+
+    private int lower(int arc) {
+        return ranks[arcFrom[arc]] < ranks[arcTo[arc]] ? arcFrom[arc] : arcTo[arc];
+    }
+
+    private int other(int arc, int v) {
+        return arcFrom[arc] == v ? arcTo[arc] : arcFrom[arc];
+    }
+
+    /**
+     * Calculates the shortest path between two stops
+     * @param source Source stop id
+     * @param target Target stop id
+     * @return ShortestPathTree with the path from the source to the target
+     */
+    public ShortestPathTree search(int source, int target) {
+        int n = graph.numStops();
+        SearchWorkspace forward = SearchWorkspace.acquire(n);
+        SearchWorkspace[] sides = { forward, forward.other(n) };
+        int[] roots = { source, target };
+
+        for(int side = 0; side < 2; side++) {
+            sides[side].reach(roots[side], 0, -1, -1, -1);
+            sides[side].heap().insertOrDecrease(roots[side], 0);
+        }
+
+        float best = Float.POSITIVE_INFINITY;
+        int meeting = -1;
+        int scanned = 0;
+
+        while(Math.min(sides[0].heap().peekKey(), sides[1].heap().peekKey()) < best) {
+            int side = sides[0].heap().peekKey() <= sides[1].heap().peekKey() ? 0 : 1;
+            SearchWorkspace search = sides[side];
+            int u = search.heap().poll();
+            scanned++;
+
+            float cost = search.reduced(u);
+            if(cost + sides[1 - side].reduced(u) < best) {
+                best = cost + sides[1 - side].reduced(u);
+                meeting = u;
+            }
+
+            for(int i = upOffsets[u]; i < upOffsets[u + 1]; i++) {
+                int arc = upArcs[i];
+                int v = other(arc, u);
+                float candidate = cost + arcWeights[arc];
+
+                if(candidate < search.reduced(v)) {
+                    search.reach(v, candidate, u, arc, -1);
+                    search.heap().insertOrDecrease(v, candidate);
+                }
+            }
+        }
+
+        return unpack(source, target, meeting, sides, scanned);
+    }
+
+    /**
+     * Expands the shortcuts of the path found into original routes
+     */
+    private ShortestPathTree unpack(int source, int target, int meeting, SearchWorkspace[] sides, int scanned) {
+        PathWalk walk = new PathWalk(graph, sides[0], source);
+        if(meeting < 0) {
+            return walk.toTree(criterion, scanned);
+        }
+
+        // Hierarchy arcs from the source up to the meeting stop, then down to the target
+        int upLength = 0;
+        for(int v = meeting; v != source; v = sides[0].predStop(v)) {
+            upLength++;
+        }
+        int length = upLength;
+        for(int v = meeting; v != target; v = sides[1].predStop(v)) {
+            length++;
+        }
+
+        int[] arcs = new int[length];
+        for(int i = upLength - 1, v = meeting; i >= 0; i--, v = sides[0].predStop(v)) {
+            arcs[i] = sides[0].predEdge(v);
+        }
+        for(int i = upLength, v = meeting; i < length; i++, v = sides[1].predStop(v)) {
+            arcs[i] = sides[1].predEdge(v);
+        }
+
+        // The stack only holds the shortcuts still to expand, at most one per level of the hierarchy
+        int[] stack = new int[16];
+        int[] stackFrom = new int[stack.length];
+        for(int i = 0; i < length; i++) {
+            int size = 0;
+            stack[size] = arcs[i];
+            stackFrom[size++] = walk.last();
+
+            while(size > 0) {
+                int arc = stack[--size];
+                int start = stackFrom[size];
+
+                if(arcMiddles[arc] < 0) {
+                    walk.add(arcEdges[arc], arcTransports[arc]);
+                    continue;
+                }
+
+                // Shortcut start - middle - end: push the second half first so the first half is expanded first
+                int middle = arcMiddles[arc];
+                boolean fromFirst = start == arcFrom[arc];
+                int first = fromFirst ? arcFirstChildren[arc] : arcSecondChildren[arc];
+                int second = fromFirst ? arcSecondChildren[arc] : arcFirstChildren[arc];
+
+                if(size + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                    stackFrom = Arrays.copyOf(stackFrom, stack.length);
+                }
+                stack[size] = second;
+                stackFrom[size++] = middle;
+                stack[size] = first;
+                stackFrom[size++] = start;
+            }
+        }
+
+        return walk.toTree(criterion, scanned);
+    }
+
+    /**
+     * Mutable state used while contracting
+     */
+    private static class Contraction {
+        private final boolean[] contracted;
+        private final int[] contractedNeighbours;
+        private final int[][] adjacency;
+        private final int[] adjacencySizes;
+
+        private final int[] bestArc;
+        private final int[] neighbours;
+
+        private final float[] witnessCosts;
+        private final int[] touched;
+        private int numTouched;
+        private final IndexedMinHeap heap;
+
+        /**
+         * Contraction constructor
+         * @param n Number of stops
+         */
+        private Contraction(int n) {
+            this.contracted = new boolean[n];
+            this.contractedNeighbours = new int[n];
+            this.adjacency = new int[n][4];
+            this.adjacencySizes = new int[n];
+            this.bestArc = new int[n];
+            this.neighbours = new int[n];
+            this.witnessCosts = new float[n];
+            this.touched = new int[n];
+            this.heap = new IndexedMinHeap(n);
+            Arrays.fill(bestArc, -1);
+            Arrays.fill(witnessCosts, Float.POSITIVE_INFINITY);
+        }
+
+        private void attach(int v, int arc) {
+            if(adjacencySizes[v] == adjacency[v].length) {
+                adjacency[v] = Arrays.copyOf(adjacency[v], adjacency[v].length * 2);
+            }
+            adjacency[v][adjacencySizes[v]++] = arc;
+        }
+
+        private void clearWitness() {
+            for(int i = 0; i < numTouched; i++) {
+                witnessCosts[touched[i]] = Float.POSITIVE_INFINITY;
+            }
+            numTouched = 0;
+        }
+    }
+}
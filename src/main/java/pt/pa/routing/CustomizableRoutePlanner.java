@@ -0,0 +1,67 @@
+package pt.pa.routing;
+
+import pt.pa.model.Criterion;
+import pt.pa.model.TransportSet;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Customizable route planning over a one-level overlay of the network. The partition of the stops
+ * is computed once per topology; when the values of the routes change (transports toggled, bicycle
+ * durations updated), the metric of each criterion and set of transports is customized again on the
+ * next query, recomputing only the cells that contain changed routes
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public class CustomizableRoutePlanner {
+    private OverlayPartition partition;
+    private final Map<Integer, OverlayMetric> metrics;
+
+    /**
+     * CustomizableRoutePlanner constructor
+     */
+    public CustomizableRoutePlanner() {
+        this.metrics = new HashMap<>();
+    }
+
+    /**
+     * Calculates the shortest path between two stops
+     * @param graph Current RoutingGraph of the network
+     * @param source Source stop id
+     * @param target Target stop id
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @return ShortestPathTree with the path from the source to the target
+     */
+    public ShortestPathTree search(RoutingGraph graph, int source, int target, TransportSet transports, Criterion criterion) {
+        return getMetric(graph, transports, criterion).search(source, target);
+    }
+
+    /**
+     * Returns the metric of a criterion and transports for a graph, customizing it if the graph changed.
+     * The partition is only computed again if the stops or routes of the graph changed
+     * @param graph Current RoutingGraph of the network
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @return OverlayMetric of the graph
+     */
+    public synchronized OverlayMetric getMetric(RoutingGraph graph, TransportSet transports, Criterion criterion) {
+        if(partition == null || !partition.matches(graph)) {
+            partition = OverlayPartition.build(graph);
+            metrics.clear();
+        }
+
+        int key = RoutingGraph.key(criterion, transports);
+        OverlayMetric metric = metrics.get(key);
+        if(metric == null || metric.getGraph() != graph) {
+            metric = OverlayMetric.customize(partition, graph, criterion, transports, metric);
+            metrics.put(key, metric);
+        }
+
+        return metric;
+    }
+}
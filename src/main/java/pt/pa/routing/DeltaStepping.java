@@ -0,0 +1,340 @@
+package pt.pa.routing;
+
+import pt.pa.model.Criterion;
+import pt.pa.model.TransportSet;
+
+import java.util.Arrays;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Delta-stepping single-source search over the shifted values of a RoutingGraph.
+ * Stops are kept in buckets of width delta; the stops of a bucket are expanded in parallel in a
+ * ForkJoinPool, first through the light routes (shifted value up to delta), which may add stops back
+ * to the same bucket, and then through the heavy routes once the bucket is empty.
+ * The shifted values are never negative, so the search works for every criterion and returns the same
+ * costs as Dijkstra
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public class DeltaStepping {
+    /**
+     * Minimum number of routes for a one-to-all search to use delta-stepping instead of Dijkstra
+     */
+    public static final int PARALLEL_THRESHOLD = 4096;
+
+    /**
+     * Smallest bucket width accepted, as a fraction of the automatic one
+     */
+    public static final int MIN_DELTA_DIVISOR = 1024;
+
+    // Stops expanded by each task
+    private static final int MIN_CHUNK = 256;
+
+    /**
+     * Calculates the shortest paths from a stop to every other stop. Large graphs are searched with
+     * delta-stepping in the common ForkJoinPool, with an automatic delta; small graphs, or machines
+     * with a single core, use Dijkstra
+     * @param graph RoutingGraph to search
+     * @param source Source stop id
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @return ShortestPathTree rooted at the source
+     */
+    public static ShortestPathTree search(RoutingGraph graph, int source, TransportSet transports, Criterion criterion) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if(graph.numEdges() < PARALLEL_THRESHOLD || pool.getParallelism() < 2) {
+            return Dijkstra.search(graph, source, transports, criterion);
+        }
+
+        return search(graph, source, transports, criterion, chooseDelta(graph, transports, criterion), pool);
+    }
+
+    /**
+     * Chooses the bucket width from the values of the routes: the average shifted value of the
+     * cheapest considered transport of each route
+     * @param graph RoutingGraph to search
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @return Bucket width (greater than 0)
+     */
+    public static float chooseDelta(RoutingGraph graph, TransportSet transports, Criterion criterion) {
+        MinimumWeights minimum = graph.getMinimumWeights(criterion, transports);
+        float shift = graph.getShift(criterion);
+
+        double sum = 0;
+        int count = 0;
+        for(int e = 0; e < graph.numEdges(); e++) {
+            if(minimum.bestTransports[e] >= 0) {
+                sum += minimum.values[e] + shift;
+                count++;
+            }
+        }
+
+        float delta = count == 0 ? 0 : (float) (sum / count);
+        return delta > 0 ? delta : 1;
+    }
+
+    /**
+     * Calculates the shortest paths from a stop to every other stop
+     * @param graph RoutingGraph to search
+     * @param source Source stop id
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @param delta Bucket width, in shifted cost (greater than 0). Widths below chooseDelta / MIN_DELTA_DIVISOR
+     *              are raised to that value, so the number of the bucket of a stop stays small
+     * @param pool ForkJoinPool that expands the stops of each bucket
+     * @return ShortestPathTree rooted at the source
+     */
+    public static ShortestPathTree search(RoutingGraph graph, int source, TransportSet transports, Criterion criterion,
+                                          float delta, ForkJoinPool pool) {
+        if(!(delta > 0)) {
+            throw new IllegalArgumentException("Delta inválido: " + delta);
+        }
+        delta = Math.max(delta, chooseDelta(graph, transports, criterion) / MIN_DELTA_DIVISOR);
+
+        Search search = new Search(graph, transports, criterion, delta, pool);
+        search.run(source);
+
+        return search.toTree(source);
+    }
+
+    /**
+     * State of a delta-stepping search. Each stop is kept in a long: the bits of the shifted cost in the
+     * high half and the edge and transport used to arrive in the low half, so both change together
+     */
+    private static class Search {
+        private final RoutingGraph graph;
+        private final Criterion criterion;
+        private final MinimumWeights minimum;
+        private final float shift;
+        private final float delta;
+        private final ForkJoinPool pool;
+
+        private final AtomicLongArray state;
+        // Expansion round in which each stop was last improved, so it's only collected once per round
+        private final AtomicIntegerArray collected;
+        // Last take in which each stop left its bucket, and last bucket (plus one) in which it was settled
+        private final int[] taken;
+        private final int[] settledBuckets;
+        // Only the buckets with stops are kept, so a narrow delta doesn't create every empty bucket in between
+        private final TreeMap<Integer, IntBuffer> buckets = new TreeMap<>();
+        private int round;
+        private int takes;
+        private int scanned;
+
+        private Search(RoutingGraph graph, TransportSet transports, Criterion criterion, float delta, ForkJoinPool pool) {
+            int n = graph.numStops();
+            this.graph = graph;
+            this.criterion = criterion;
+            this.minimum = graph.getMinimumWeights(criterion, transports);
+            this.shift = graph.getShift(criterion);
+            this.delta = delta;
+            this.pool = pool;
+            this.state = new AtomicLongArray(n);
+            this.collected = new AtomicIntegerArray(n);
+            this.taken = new int[n];
+            this.settledBuckets = new int[n];
+
+            long unreached = pack(Float.POSITIVE_INFINITY, -1);
+            for(int v = 0; v < n; v++) {
+                state.set(v, unreached);
+            }
+        }
+
+        private void run(int source) {
+            state.set(source, pack(0, -1));
+            bucket(0).add(source);
+
+            while(!buckets.isEmpty()) {
+                int i = buckets.firstKey();
+                IntBuffer settled = new IntBuffer();
+
+                // Light routes can put stops back in the same bucket, so it's expanded until it stays empty
+                while(buckets.get(i).size() > 0) {
+                    IntBuffer frontier = take(i);
+                    scanned += frontier.size();
+                    for(int k = 0; k < frontier.size(); k++) {
+                        int v = frontier.get(k);
+                        if(settledBuckets[v] != i + 1) {
+                            settledBuckets[v] = i + 1;
+                            settled.add(v);
+                        }
+                    }
+
+                    round++;
+                    distribute(pool.invoke(new Expand(this, frontier, 0, frontier.size(), true)));
+                }
+
+                if(settled.size() > 0) {
+                    round++;
+                    distribute(pool.invoke(new Expand(this, settled, 0, settled.size(), false)));
+                }
+                buckets.remove(i);
+            }
+        }
+
+        /**
+         * Removes the stops of a bucket that still belong to it, without repeating stops
+         */
+        private IntBuffer take(int i) {
+            IntBuffer bucket = buckets.put(i, new IntBuffer());
+            takes++;
+
+            IntBuffer frontier = new IntBuffer();
+            for(int k = 0; k < bucket.size(); k++) {
+                int v = bucket.get(k);
+                if(taken[v] != takes && bucketOf(v) == i) {
+                    taken[v] = takes;
+                    frontier.add(v);
+                }
+            }
+
+            return frontier;
+        }
+
+        /**
+         * Adds the improved stops to the buckets of their new costs
+         */
+        private void distribute(IntBuffer improved) {
+            for(int k = 0; k < improved.size(); k++) {
+                int v = improved.get(k);
+                bucket(bucketOf(v)).add(v);
+            }
+        }
+
+        private IntBuffer bucket(int i) {
+            return buckets.computeIfAbsent(i, key -> new IntBuffer());
+        }
+
+        private int bucketOf(int v) {
+            return (int) (reduced(state.get(v)) / delta);
+        }
+
+        /**
+         * Relaxes the light or heavy routes of a stop, adding the improved stops to a buffer
+         */
+        private void expand(int u, boolean light, IntBuffer improved, int round) {
+            float reducedU = reduced(state.get(u));
+
+            for(int a = graph.offsets[u]; a < graph.offsets[u + 1]; a++) {
+                int e = graph.arcEdges[a];
+                int t = minimum.bestTransports[e];
+                if(t < 0) continue;
+
+                int v = graph.targets[a];
+                float weight = minimum.values[e] + shift;
+                if((weight <= delta) != light) continue;
+
+                float candidate = reducedU + weight;
+                long packed = pack(candidate, e * RoutingGraph.TRANSPORTS + t);
+                while(true) {
+                    long current = state.get(v);
+                    if(!(reduced(current) > candidate)) break;
+                    if(state.compareAndSet(v, current, packed)) {
+                        if(collected.getAndSet(v, round) != round) improved.add(v);
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Builds the tree, calculating the exact cost of each stop along its path
+         */
+        private ShortestPathTree toTree(int source) {
+            int n = graph.numStops();
+            int[] predEdges = new int[n];
+            int[] predTransports = new int[n];
+            for(int v = 0; v < n; v++) {
+                int pred = (int) state.get(v);
+                predEdges[v] = pred < 0 ? -1 : pred / RoutingGraph.TRANSPORTS;
+                predTransports[v] = pred < 0 ? -1 : pred % RoutingGraph.TRANSPORTS;
+            }
+
+            return new ShortestPathTree(graph, criterion, source, ShortestPathTree.pathCosts(graph, minimum, source, predEdges),
+                    predEdges, predTransports, scanned);
+        }
+
+        private static long pack(float reduced, int pred) {
+            return (long) Float.floatToIntBits(reduced) << 32 | (pred & 0xFFFFFFFFL);
+        }
+
+        private static float reduced(long value) {
+            return Float.intBitsToFloat((int) (value >>> 32));
+        }
+    }
+
+    /**
+     * Task that expands a range of stops of a bucket, returning the stops it improved
+     */
+    private static class Expand extends RecursiveTask<IntBuffer> {
+        private static final long serialVersionUID = 1L;
+
+        private final Search search;
+        private final IntBuffer stops;
+        private final int from;
+        private final int to;
+        private final boolean light;
+
+        private Expand(Search search, IntBuffer stops, int from, int to, boolean light) {
+            this.search = search;
+            this.stops = stops;
+            this.from = from;
+            this.to = to;
+            this.light = light;
+        }
+
+        @Override
+        protected IntBuffer compute() {
+            if(to - from > MIN_CHUNK) {
+                int middle = (from + to) >>> 1;
+                Expand left = new Expand(search, stops, from, middle, light);
+                left.fork();
+                IntBuffer improved = new Expand(search, stops, middle, to, light).compute();
+                improved.addAll(left.join());
+                return improved;
+            }
+
+            IntBuffer improved = new IntBuffer();
+            for(int k = from; k < to; k++) {
+                search.expand(stops.get(k), light, improved, search.round);
+            }
+
+            return improved;
+        }
+    }
+
+    /**
+     * Growable array of stop ids
+     */
+    private static class IntBuffer {
+        private int[] values = new int[8];
+        private int size;
+
+        private void add(int value) {
+            if(size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        private void addAll(IntBuffer other) {
+            if(size + other.size > values.length) values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        private int get(int index) {
+            return values[index];
+        }
+
+        private int size() {
+            return size;
+        }
+    }
+}
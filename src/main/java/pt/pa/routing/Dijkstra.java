@@ -0,0 +1,150 @@
+package pt.pa.routing;
+
+import pt.pa.model.Criterion;
+import pt.pa.model.TransportSet;
+
+/**
+ * Dijkstra single-source search over the shifted values of a RoutingGraph, with optional
+ * A* modes guided by the great-circle distance to the target or by landmark bounds (ALT)
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public class Dijkstra {
+    /**
+     * Calculates the shortest paths from a stop to every other stop.
+     * The costs in the returned tree are the exact values of the routes taken, without the shift
+     * @param graph RoutingGraph to search
+     * @param source Source stop id
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @return ShortestPathTree rooted at the source
+     */
+    public static ShortestPathTree search(RoutingGraph graph, int source, TransportSet transports, Criterion criterion) {
+        return search(graph, source, -1, transports, criterion, null);
+    }
+
+    /**
+     * Calculates the shortest path from a stop to a target stop, stopping as soon as the target is settled.
+     * The returned tree only contains the path to the target
+     * @param graph RoutingGraph to search
+     * @param source Source stop id
+     * @param target Target stop id (-1 to search every stop)
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @return ShortestPathTree with the path from the source to the target
+     */
+    public static ShortestPathTree search(RoutingGraph graph, int source, int target, TransportSet transports, Criterion criterion) {
+        return search(graph, source, target, transports, criterion, null);
+    }
+
+    /**
+     * Calculates the shortest path from a stop to a target stop using A*, with the great-circle
+     * distance to the target (scaled by RoutingGraph.getHeuristicScale) as the heuristic
+     * @param graph RoutingGraph to search
+     * @param source Source stop id
+     * @param target Target stop id
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @return ShortestPathTree with the path from the source to the target
+     */
+    public static ShortestPathTree searchAStar(RoutingGraph graph, int source, int target, TransportSet transports, Criterion criterion) {
+        float scale = graph.getHeuristicScale(criterion);
+        LowerBound bound = scale > 0 ? stop -> scale * (float) graph.greatCircleDistance(stop, target) : null;
+
+        return search(graph, source, target, transports, criterion, bound);
+    }
+
+    /**
+     * Calculates the shortest path from a stop to a target stop using ALT (A* with landmark bounds).
+     * Unlike the great-circle distance, the landmark bounds also guide duration and cost searches
+     * @param graph RoutingGraph to search
+     * @param source Source stop id
+     * @param target Target stop id
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @return ShortestPathTree with the path from the source to the target
+     */
+    public static ShortestPathTree searchALT(RoutingGraph graph, int source, int target, TransportSet transports, Criterion criterion) {
+        Landmarks landmarks = graph.getLandmarks(criterion);
+
+        return search(graph, source, target, transports, criterion, stop -> landmarks.lowerBound(stop, target));
+    }
+
+    private static ShortestPathTree search(RoutingGraph graph, int source, int target, TransportSet transports,
+                                           Criterion criterion, LowerBound bound) {
+        int n = graph.numStops();
+        float shift = graph.getShift(criterion);
+
+        MinimumWeights minimum = graph.getMinimumWeights(criterion, transports);
+        float[] values = minimum.values;
+        int[] bestTransports = minimum.bestTransports;
+
+        // The working state is reused between searches; only the result is allocated
+        boolean goalDirected = bound != null && target >= 0;
+        SearchWorkspace workspace = SearchWorkspace.acquire(n);
+        IndexedMinHeap heap = workspace.heap();
+        workspace.reach(source, 0, -1, -1, -1);
+        heap.insertOrDecrease(source, 0);
+        int scanned = 0;
+
+        while(!heap.isEmpty()) {
+            int u = heap.poll();
+            workspace.settle(u);
+            if(u == target) break;
+            scanned++;
+
+            float reducedU = workspace.reduced(u);
+            for(int a = graph.offsets[u]; a < graph.offsets[u + 1]; a++) {
+                int v = graph.targets[a];
+                if(workspace.isSettled(v)) continue;
+
+                int e = graph.arcEdges[a];
+                // Only the cheapest of the selected transports of each route can improve a path
+                int t = bestTransports[e];
+                if(t < 0) continue;
+                float value = values[e];
+
+                float candidate = reducedU + value + shift;
+                if(candidate < workspace.reduced(v)) {
+                    workspace.reach(v, candidate, u, e, t);
+
+                    float key = candidate;
+                    if(goalDirected) {
+                        // Heuristic of each stop, calculated the first time the stop is reached
+                        if(!workspace.hasHeuristic(v)) {
+                            workspace.setHeuristic(v, bound.estimate(v));
+                        }
+                        // Priority of the shifted values: distance + heuristic
+                        key = candidate + workspace.heuristic(v);
+                    }
+                    heap.insertOrDecrease(v, key);
+                }
+            }
+        }
+
+        if(target >= 0) {
+            return PathTree.of(graph, criterion, workspace, source, target, scanned);
+        }
+
+        int[] predEdges = new int[n];
+        int[] predTransports = new int[n];
+        for(int v = 0; v < n; v++) {
+            boolean reached = v != source && !Float.isInfinite(workspace.reduced(v));
+            predEdges[v] = reached ? workspace.predEdge(v) : -1;
+            predTransports[v] = reached ? workspace.predTransport(v) : -1;
+        }
+        float[] costs = ShortestPathTree.pathCosts(graph, minimum, source, predEdges);
+
+        return new ShortestPathTree(graph, criterion, source, costs, predEdges, predTransports, scanned);
+    }
+
+    /**
+     * Lower bound of the shifted cost from a stop to the target of a search
+     */
+    private interface LowerBound {
+        float estimate(int stop);
+    }
+}
@@ -0,0 +1,129 @@
+package pt.pa.routing;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of stop ids with float keys and decrease-key support, stored in primitive arrays
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public class IndexedMinHeap {
+    private final int[] heap;
+    private final int[] positions;
+    private final float[] keys;
+    private int size;
+
+    /**
+     * IndexedMinHeap constructor
+     * @param capacity Number of ids the heap can hold (ids range from 0 to capacity - 1)
+     */
+    public IndexedMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.keys = new float[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Checks if the heap is empty
+     * @return True if the heap is empty. False otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the smallest key in the heap
+     * @return Smallest key. Infinity if the heap is empty
+     */
+    public float peekKey() {
+        return size == 0 ? Float.POSITIVE_INFINITY : keys[heap[0]];
+    }
+
+    /**
+     * Inserts an id or lowers its key if it's already in the heap
+     * @param id Id to insert
+     * @param key Key of the id
+     */
+    public void insertOrDecrease(int id, float key) {
+        int position = positions[id];
+
+        if(position < 0) {
+            position = size++;
+            heap[position] = id;
+            positions[id] = position;
+        } else if(key >= keys[id]) {
+            return;
+        }
+
+        keys[id] = key;
+        siftUp(position);
+    }
+
+    /**
+     * Removes the id with the smallest key
+     * @return Id with the smallest key
+     */
+    public int poll() {
+        int min = heap[0];
+        int last = heap[--size];
+
+        positions[min] = -1;
+        if(size > 0) {
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+
+        return min;
+    }
+
+    /**
+     * Removes every id from the heap
+     */
+    public void clear() {
+        for(int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int position) {
+        int id = heap[position];
+        float key = keys[id];
+
+        while(position > 0) {
+            int parent = (position - 1) >>> 1;
+            if(keys[heap[parent]] <= key) break;
+
+            heap[position] = heap[parent];
+            positions[heap[position]] = position;
+            position = parent;
+        }
+
+        heap[position] = id;
+        positions[id] = position;
+    }
+
+    private void siftDown(int position) {
+        int id = heap[position];
+        float key = keys[id];
+
+        while(true) {
+            int child = 2 * position + 1;
+            if(child >= size) break;
+            if(child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) child++;
+            if(keys[heap[child]] >= key) break;
+
+            heap[position] = heap[child];
+            positions[heap[position]] = position;
+            position = child;
+        }
+
+        heap[position] = id;
+        positions[id] = position;
+    }
+}
@@ -0,0 +1,156 @@
+package pt.pa.routing;
+
+import pt.pa.model.Criterion;
+
+import java.util.Arrays;
+
+/**
+ * Landmark tables of a criterion for ALT (A*, landmarks and triangle inequality) searches.
+ * Stores the shifted cost from each landmark to every stop, using the cheapest transport of each
+ * route, so the bounds remain valid for any set of transports. Landmarks are chosen by farthest
+ * selection: each new landmark is the stop farthest from the ones already chosen
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public class Landmarks {
+    /**
+     * Default number of landmarks
+     */
+    public static final int DEFAULT_COUNT = 4;
+
+    private final int numStops;
+    private final int[] stops;
+    private final float[] costs;
+
+    private Landmarks(int numStops, int[] stops, float[] costs) {
+        this.numStops = numStops;
+        this.stops = stops;
+        this.costs = costs;
+    }
+
+    /**
+     * Chooses the landmarks of a criterion and computes their tables
+     * @param graph RoutingGraph object
+     * @param criterion Optimization criterion
+     * @param count Number of landmarks
+     * @return Landmarks of the criterion
+     */
+    static Landmarks compute(RoutingGraph graph, Criterion criterion, int count) {
+        int n = graph.numStops();
+        int k = Math.min(count, n);
+        if(k == 0) return new Landmarks(n, new int[0], new float[0]);
+        float shift = graph.getShift(criterion);
+
+        float[] edgeWeights = new float[graph.numEdges()];
+        Arrays.fill(edgeWeights, Float.NaN);
+        for(int t = 0; t < RoutingGraph.TRANSPORTS; t++) {
+            float[] values = graph.weights[RoutingGraph.index(criterion, t)];
+            for(int e = 0; e < edgeWeights.length; e++) {
+                if(!Float.isNaN(values[e]) && !(values[e] + shift >= edgeWeights[e])) {
+                    edgeWeights[e] = values[e] + shift;
+                }
+            }
+        }
+
+        int[] stops = new int[k];
+        float[] costs = new float[k * n];
+        float[] nearest = new float[n];
+        Arrays.fill(nearest, Float.POSITIVE_INFINITY);
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+
+        // The first search, from stop 0, only serves to find the first landmark
+        float[] scratch = new float[n];
+        search(graph, edgeWeights, 0, scratch, 0, heap);
+        int next = farthest(scratch, false);
+
+        for(int i = 0; i < k; i++) {
+            stops[i] = next;
+            search(graph, edgeWeights, next, costs, i * n, heap);
+
+            for(int v = 0; v < n; v++) {
+                nearest[v] = Math.min(nearest[v], costs[i * n + v]);
+            }
+            next = farthest(nearest, true);
+        }
+
+        return new Landmarks(n, stops, costs);
+    }
+
+    /**
+     * Dijkstra from a stop, writing the costs into a table
+     */
+    private static void search(RoutingGraph graph, float[] edgeWeights, int source, float[] table, int offset, IndexedMinHeap heap) {
+        int n = graph.numStops();
+        Arrays.fill(table, offset, offset + n, Float.POSITIVE_INFINITY);
+        table[offset + source] = 0;
+        heap.insertOrDecrease(source, 0);
+
+        while(!heap.isEmpty()) {
+            int u = heap.poll();
+            for(int a = graph.offsets[u]; a < graph.offsets[u + 1]; a++) {
+                int v = graph.targets[a];
+                float candidate = table[offset + u] + edgeWeights[graph.arcEdges[a]];
+
+                if(candidate < table[offset + v]) {
+                    table[offset + v] = candidate;
+                    heap.insertOrDecrease(v, candidate);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the stop with the highest cost. Unreachable stops come first, so every component
+     * of the network gets a landmark
+     * @param costs Cost of each stop
+     * @param skipLandmarks True to skip the stops with no cost (the landmarks already chosen)
+     * @return Stop id
+     */
+    private static int farthest(float[] costs, boolean skipLandmarks) {
+        int best = 0;
+        float bestCost = -1;
+        for(int v = 0; v < costs.length; v++) {
+            if(skipLandmarks && costs[v] == 0) continue;
+
+            float cost = Float.isInfinite(costs[v]) ? Float.MAX_VALUE : costs[v];
+            if(cost > bestCost) {
+                best = v;
+                bestCost = cost;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Returns the landmark stops
+     * @return Array of stop ids
+     */
+    public int[] getStops() {
+        return stops.clone();
+    }
+
+    /**
+     * Returns a lower bound of the shifted cost between two stops, using the triangle inequality
+     * |d(L, target) - d(L, stop)| over every landmark L
+     * @param stop Stop id
+     * @param target Target stop id
+     * @return Lower bound of the cost
+     */
+    public float lowerBound(int stop, int target) {
+        float bound = 0;
+        for(int i = 0, offset = 0; i < stops.length; i++, offset += numStops) {
+            float toStop = costs[offset + stop];
+            float toTarget = costs[offset + target];
+
+            if(!Float.isInfinite(toStop) && !Float.isInfinite(toTarget)) {
+                bound = Math.max(bound, Math.abs(toTarget - toStop));
+            }
+        }
+
+        return bound;
+    }
+}
@@ -0,0 +1,86 @@
+package pt.pa.routing;
+
+import pt.pa.model.Criterion;
+import pt.pa.model.TransportSet;
+
+import java.util.Arrays;
+
+/**
+ * Cheapest value of each edge of a RoutingGraph for a criterion and a set of transports, together with
+ * the transport that achieves it. Searches read one value per edge instead of comparing every transport
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+final class MinimumWeights {
+    final Criterion criterion;
+    final TransportSet transports;
+    // Cheapest value of each edge (NaN if none of the transports is available)
+    final float[] values;
+    // Ordinal of the transport with the cheapest value (-1 if none)
+    final int[] bestTransports;
+
+    private MinimumWeights(Criterion criterion, TransportSet transports, float[] values, int[] bestTransports) {
+        this.criterion = criterion;
+        this.transports = transports;
+        this.values = values;
+        this.bestTransports = bestTransports;
+    }
+
+    /**
+     * Calculates the cheapest value of every edge
+     * @param graph RoutingGraph object
+     * @param criterion Optimization criterion
+     * @param transports Set of Transports to be considered
+     * @return MinimumWeights of the graph
+     */
+    static MinimumWeights compute(RoutingGraph graph, Criterion criterion, TransportSet transports) {
+        int m = graph.numEdges();
+        MinimumWeights weights = new MinimumWeights(criterion, transports, new float[m], new int[m]);
+        for(int e = 0; e < m; e++) {
+            weights.fill(graph, e);
+        }
+
+        return weights;
+    }
+
+    /**
+     * Creates the table of a new snapshot with the same routes, calculating again only the changed edges
+     * @param graph New RoutingGraph, with the same topology as the graph of this table
+     * @param changedEdges Ids of the edges whose values changed
+     * @return MinimumWeights of the new graph
+     */
+    MinimumWeights update(RoutingGraph graph, int[] changedEdges) {
+        MinimumWeights weights = new MinimumWeights(criterion, transports,
+                Arrays.copyOf(values, values.length), Arrays.copyOf(bestTransports, bestTransports.length));
+        for(int e : changedEdges) {
+            weights.fill(graph, e);
+        }
+
+        return weights;
+    }
+
+    /**
+     * Stores the cheapest value of an edge. Ties are won by the transport with the lowest ordinal
+     */
+    private void fill(RoutingGraph graph, int e) {
+        float best = Float.NaN;
+        int bestTransport = -1;
+
+        int usable = graph.availableTransports[criterion.ordinal()][e] & transports.mask();
+        while(usable != 0) {
+            int t = Integer.numberOfTrailingZeros(usable);
+            usable &= usable - 1;
+            float value = graph.weights[RoutingGraph.index(criterion, t)][e];
+            if(!(value >= best)) {
+                best = value;
+                bestTransport = t;
+            }
+        }
+
+        values[e] = best;
+        bestTransports[e] = bestTransport;
+    }
+}
@@ -0,0 +1,253 @@
+package pt.pa.routing;
+
+import pt.pa.model.Criterion;
+import pt.pa.model.TransportSet;
+
+/**
+ * Customization of an OverlayPartition for one criterion and one set of transports: the shifted value
+ * of the cheapest transport of each route and, for every cell, the cost between each pair of its
+ * boundary stops using only routes inside the cell. When the values change, only the cells with
+ * changed routes are customized again
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public class OverlayMetric {
+    private final RoutingGraph graph;
+    private final OverlayPartition partition;
+    private final Criterion criterion;
+    private final float shift;
+
+    private final float[] edgeWeights;
+    private final int[] edgeTransports;
+    private final float[][] cliques;
+    private final int customizedCells;
+
+    private OverlayMetric(RoutingGraph graph, OverlayPartition partition, Criterion criterion, TransportSet transports) {
+        int m = graph.numEdges();
+        this.graph = graph;
+        this.partition = partition;
+        this.criterion = criterion;
+        this.shift = graph.getShift(criterion);
+
+        MinimumWeights minimum = graph.getMinimumWeights(criterion, transports);
+        this.edgeWeights = new float[m];
+        this.edgeTransports = minimum.bestTransports;
+        for(int e = 0; e < m; e++) {
+            edgeWeights[e] = minimum.values[e] + shift;
+        }
+
+        this.cliques = new float[partition.numCells()][];
+        this.customizedCells = 0;
+    }
+
+    private OverlayMetric(OverlayMetric metric, float[][] cliques, int customizedCells) {
+        this.graph = metric.graph;
+        this.partition = metric.partition;
+        this.criterion = metric.criterion;
+        this.shift = metric.shift;
+        this.edgeWeights = metric.edgeWeights;
+        this.edgeTransports = metric.edgeTransports;
+        this.cliques = cliques;
+        this.customizedCells = customizedCells;
+    }
+
+    /**
+     * Customizes a partition for a criterion and a set of transports, reusing the cells of a previous
+     * customization whose routes kept the same values
+     * @param partition OverlayPartition of the graph
+     * @param graph Current RoutingGraph of the network
+     * @param criterion Optimization criterion
+     * @param transports Set of Transports to be considered
+     * @param previous Previous customization of the same criterion and transports (null if none)
+     * @return OverlayMetric of the graph
+     */
+    public static OverlayMetric customize(OverlayPartition partition, RoutingGraph graph, Criterion criterion,
+                                          TransportSet transports, OverlayMetric previous) {
+        OverlayMetric metric = new OverlayMetric(graph, partition, criterion, transports);
+        boolean reusable = previous != null && previous.partition == partition && previous.shift == metric.shift;
+
+        boolean[] dirty = new boolean[partition.numCells()];
+        for(int e = 0; e < graph.numEdges(); e++) {
+            int cell = partition.cells[graph.edgeSource[e]];
+            if(cell != partition.cells[graph.edgeTarget[e]]) continue;
+
+            if(!reusable || Float.compare(previous.edgeWeights[e], metric.edgeWeights[e]) != 0) {
+                dirty[cell] = true;
+            }
+        }
+
+        float[][] cliques = new float[partition.numCells()][];
+        int customized = 0;
+        for(int c = 0; c < cliques.length; c++) {
+            if(reusable && !dirty[c]) {
+                cliques[c] = previous.cliques[c];
+                continue;
+            }
+
+            int[] boundary = partition.cellBoundaries[c];
+            cliques[c] = new float[boundary.length * boundary.length];
+            for(int i = 0; i < boundary.length; i++) {
+                SearchWorkspace search = SearchWorkspace.acquire(graph.numStops());
+                metric.searchCell(search, boundary[i], -1);
+                for(int j = 0; j < boundary.length; j++) {
+                    cliques[c][i * boundary.length + j] = search.reduced(boundary[j]);
+                }
+            }
+            customized++;
+        }
+
+        return new OverlayMetric(metric, cliques, customized);
+    }
+
+    /**
+     * Returns the graph the metric was customized for
+     * @return RoutingGraph object
+     */
+    public RoutingGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the number of cells customized when the metric was created (the others were reused)
+     * @return Number of customized cells
+     */
+    public int getCustomizedCells() {
+        return customizedCells;
+    }
+
+    /**
+     * Dijkstra restricted to the routes inside the cell of the source
+     * @param search Workspace ready for a new search
+     * @param source Source stop id
+     * @param target Stop where the search can stop (-1 to search the whole cell)
+     */
+    private void searchCell(SearchWorkspace search, int source, int target) {
+        int cell = partition.cells[source];
+        search.reach(source, 0, -1, -1, -1);
+        search.heap().insertOrDecrease(source, 0);
+
+        while(!search.heap().isEmpty()) {
+            int u = search.heap().poll();
+            if(u == target) break;
+
+            for(int a = graph.offsets[u]; a < graph.offsets[u + 1]; a++) {
+                int v = graph.targets[a];
+                int e = graph.arcEdges[a];
+                if(partition.cells[v] != cell || Float.isNaN(edgeWeights[e])) continue;
+
+                float candidate = search.reduced(u) + edgeWeights[e];
+                if(candidate < search.reduced(v)) {
+                    search.reach(v, candidate, u, e, -1);
+                    search.heap().insertOrDecrease(v, candidate);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates the shortest path between two stops. Inside the cells of the source and the target
+     * the search uses the routes themselves; elsewhere it only moves between boundary stops, through
+     * the cell costs or the routes between cells
+     * @param source Source stop id
+     * @param target Target stop id
+     * @return ShortestPathTree with the path from the source to the target
+     */
+    public ShortestPathTree search(int source, int target) {
+        int n = graph.numStops();
+        int sourceCell = partition.cells[source];
+        int targetCell = partition.cells[target];
+
+        SearchWorkspace workspace = SearchWorkspace.acquire(n);
+        IndexedMinHeap heap = workspace.heap();
+        workspace.reach(source, 0, -1, -1, -1);
+        heap.insertOrDecrease(source, 0);
+        int scanned = 0;
+
+        while(!heap.isEmpty()) {
+            int u = heap.poll();
+            if(u == target) break;
+            scanned++;
+
+            int cell = partition.cells[u];
+            boolean local = cell == sourceCell || cell == targetCell;
+            float cost = workspace.reduced(u);
+
+            for(int a = graph.offsets[u]; a < graph.offsets[u + 1]; a++) {
+                int v = graph.targets[a];
+                int e = graph.arcEdges[a];
+                if((!local && partition.cells[v] == cell) || Float.isNaN(edgeWeights[e])) continue;
+
+                float candidate = cost + edgeWeights[e];
+                if(candidate < workspace.reduced(v)) {
+                    workspace.reach(v, candidate, u, e, -1);
+                    heap.insertOrDecrease(v, candidate);
+                }
+            }
+
+            if(!local) {
+                int[] boundary = partition.cellBoundaries[cell];
+                int row = partition.boundaryIndexes[u] * boundary.length;
+                for(int j = 0; j < boundary.length; j++) {
+                    int v = boundary[j];
+                    float candidate = cost + cliques[cell][row + j];
+                    if(v != u && candidate < workspace.reduced(v)) {
+                        workspace.reach(v, candidate, u, -1, -1);
+                        heap.insertOrDecrease(v, candidate);
+                    }
+                }
+            }
+        }
+
+        return unpack(source, target, workspace, scanned);
+    }
+
+    /**
+     * Expands the cell costs of the path found into the routes inside the cells
+     */
+    private ShortestPathTree unpack(int source, int target, SearchWorkspace workspace, int scanned) {
+        PathWalk walk = new PathWalk(graph, workspace, source);
+        if(Float.isInfinite(workspace.reduced(target))) {
+            return walk.toTree(criterion, scanned);
+        }
+
+        int length = 0;
+        for(int v = target; v != source; v = workspace.predStop(v)) {
+            length++;
+        }
+        int[] path = new int[length];
+        int[] pathEdges = new int[length];
+        for(int i = length - 1, v = target; i >= 0; i--, v = workspace.predStop(v)) {
+            path[i] = v;
+            pathEdges[i] = workspace.predEdge(v);
+        }
+
+        for(int i = 0; i < length; i++) {
+            if(pathEdges[i] >= 0) {
+                walk.add(pathEdges[i], edgeTransports[pathEdges[i]]);
+                continue;
+            }
+
+            // Cell cost: find the routes inside the cell again, in the second workspace of the thread
+            int from = walk.last();
+            SearchWorkspace search = workspace.other(graph.numStops());
+            searchCell(search, from, path[i]);
+            int hops = 0;
+            for(int w = path[i]; w != from; w = search.predStop(w)) {
+                hops++;
+            }
+            int[] edges = new int[hops];
+            for(int j = hops - 1, w = path[i]; j >= 0; j--, w = search.predStop(w)) {
+                edges[j] = search.predEdge(w);
+            }
+
+            for(int edge : edges) {
+                walk.add(edge, edgeTransports[edge]);
+            }
+        }
+
+        return walk.toTree(criterion, scanned);
+    }
+}
@@ -0,0 +1,132 @@
+package pt.pa.routing;
+
+import java.util.Arrays;
+
+/**
+ * Partition of the stops of a RoutingGraph into connected cells, computed only from the topology
+ * so that it stays valid while the values of the routes change. The boundary stops of a cell are
+ * the ones with a route to another cell
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public class OverlayPartition {
+    private final RoutingGraph graph;
+    final int[] cells;
+    final int[][] cellStops;
+    final int[][] cellBoundaries;
+    final int[] boundaryIndexes;
+
+    private OverlayPartition(RoutingGraph graph, int[] cells, int numCells) {
+        int n = graph.numStops();
+        this.graph = graph;
+        this.cells = cells;
+
+        int[] sizes = new int[numCells];
+        int[] boundarySizes = new int[numCells];
+        boolean[] boundary = new boolean[n];
+        for(int v = 0; v < n; v++) {
+            sizes[cells[v]]++;
+            for(int a = graph.offsets[v]; a < graph.offsets[v + 1]; a++) {
+                if(cells[graph.targets[a]] != cells[v]) boundary[v] = true;
+            }
+            if(boundary[v]) boundarySizes[cells[v]]++;
+        }
+
+        this.cellStops = new int[numCells][];
+        this.cellBoundaries = new int[numCells][];
+        for(int c = 0; c < numCells; c++) {
+            cellStops[c] = new int[sizes[c]];
+            cellBoundaries[c] = new int[boundarySizes[c]];
+        }
+
+        this.boundaryIndexes = new int[n];
+        Arrays.fill(boundaryIndexes, -1);
+        Arrays.fill(sizes, 0);
+        Arrays.fill(boundarySizes, 0);
+        for(int v = 0; v < n; v++) {
+            int c = cells[v];
+            cellStops[c][sizes[c]++] = v;
+            if(boundary[v]) {
+                boundaryIndexes[v] = boundarySizes[c];
+                cellBoundaries[c][boundarySizes[c]++] = v;
+            }
+        }
+    }
+
+    /**
+     * Partitions a graph by growing cells breadth-first up to a maximum size
+     * @param graph RoutingGraph to partition
+     * @param maxCellSize Maximum number of stops of a cell
+     * @return OverlayPartition of the graph
+     */
+    public static OverlayPartition build(RoutingGraph graph, int maxCellSize) {
+        int n = graph.numStops();
+        int[] cells = new int[n];
+        Arrays.fill(cells, -1);
+
+        int[] queue = new int[n];
+        int numCells = 0;
+        for(int root = 0; root < n; root++) {
+            if(cells[root] >= 0) continue;
+
+            int head = 0;
+            int tail = 0;
+            int size = 1;
+            cells[root] = numCells;
+            queue[tail++] = root;
+
+            while(head < tail && size < maxCellSize) {
+                int u = queue[head++];
+                for(int a = graph.offsets[u]; a < graph.offsets[u + 1] && size < maxCellSize; a++) {
+                    int v = graph.targets[a];
+                    if(cells[v] < 0) {
+                        cells[v] = numCells;
+                        queue[tail++] = v;
+                        size++;
+                    }
+                }
+            }
+            numCells++;
+        }
+
+        return new OverlayPartition(graph, cells, numCells);
+    }
+
+    /**
+     * Partitions a graph with cells of about the square root of the number of stops
+     * @param graph RoutingGraph to partition
+     * @return OverlayPartition of the graph
+     */
+    public static OverlayPartition build(RoutingGraph graph) {
+        return build(graph, Math.max(2, (int) Math.ceil(Math.sqrt(graph.numStops()))));
+    }
+
+    /**
+     * Checks if the partition can be used with a graph (same stops and routes)
+     * @param other RoutingGraph object
+     * @return True if the graph has the topology of the partitioned one. False otherwise
+     */
+    public boolean matches(RoutingGraph other) {
+        return graph.sameTopology(other);
+    }
+
+    /**
+     * Returns the number of cells
+     * @return Number of cells
+     */
+    public int numCells() {
+        return cellStops.length;
+    }
+
+    /**
+     * Returns the cell of a stop
+     * @param stop Stop id
+     * @return Cell id
+     */
+    public int getCell(int stop) {
+        return cells[stop];
+    }
+}
@@ -0,0 +1,160 @@
+package pt.pa.routing;
+
+import pt.pa.model.Criterion;
+import pt.pa.model.Stop;
+import pt.pa.model.Transport;
+import pt.pa.model.TransportsMap.RouteInfo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a search between two stops. Only the stops of the path found are kept, so the result
+ * takes space proportional to the path and not to the graph
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+final class PathTree extends ShortestPathTree {
+    private final int[] stops;
+    private final int[] edges;
+    private final int[] transports;
+    private final float[] pathCosts;
+
+    /**
+     * PathTree constructor
+     * @param graph Graph that was searched
+     * @param criterion Optimization criterion
+     * @param stops Stops of the path, starting at the source
+     * @param edges Edge used to arrive at each stop of the path (-1 for the source)
+     * @param transports Transport ordinal used to arrive at each stop of the path (-1 for the source)
+     * @param scannedStops Number of times a stop had its routes examined during the search
+     */
+    PathTree(RoutingGraph graph, Criterion criterion, int[] stops, int[] edges, int[] transports, int scannedStops) {
+        super(graph, criterion, stops[0], null, null, null, scannedStops);
+        this.stops = stops;
+        this.edges = edges;
+        this.transports = transports;
+        this.pathCosts = new float[stops.length];
+
+        for(int i = 1; i < stops.length; i++) {
+            pathCosts[i] = pathCosts[i - 1] + graph.weights[RoutingGraph.index(criterion, transports[i])][edges[i]];
+        }
+    }
+
+    /**
+     * Builds the path found by a search from the predecessors kept in its workspace
+     * @param graph Graph that was searched
+     * @param criterion Optimization criterion
+     * @param workspace Workspace of the search
+     * @param source Source stop id
+     * @param target Target stop id
+     * @param scannedStops Number of times a stop had its routes examined during the search
+     * @return PathTree with the path from the source to the target. Only the source if the target wasn't reached
+     */
+    static PathTree of(RoutingGraph graph, Criterion criterion, SearchWorkspace workspace, int source, int target, int scannedStops) {
+        if(Float.isInfinite(workspace.reduced(target))) {
+            return new PathTree(graph, criterion, new int[] { source }, new int[] { -1 }, new int[] { -1 }, scannedStops);
+        }
+
+        int length = 1;
+        for(int v = target; v != source; v = workspace.predStop(v)) {
+            length++;
+        }
+
+        int[] stops = new int[length];
+        int[] edges = new int[length];
+        int[] transports = new int[length];
+        for(int i = length - 1, v = target; i >= 0; i--, v = workspace.predStop(v)) {
+            stops[i] = v;
+            edges[i] = workspace.predEdge(v);
+            transports[i] = workspace.predTransport(v);
+        }
+
+        return new PathTree(graph, criterion, stops, edges, transports, scannedStops);
+    }
+
+    private int indexOf(int stop) {
+        for(int i = 0; i < stops.length; i++) {
+            if(stops[i] == stop) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the cost to arrive at a stop of the path
+     * @param stop Stop id
+     * @return Cost to arrive. Infinity if the stop isn't in the path
+     */
+    @Override
+    public float getCost(int stop) {
+        int i = indexOf(stop);
+        return i < 0 ? Float.POSITIVE_INFINITY : pathCosts[i];
+    }
+
+    /**
+     * Converts the path into the map format used by the strategies
+     * @return Map containing the route data of the stops of the path
+     */
+    @Override
+    public Map<Stop, RouteInfo> toRouteInfoMap() {
+        Map<Stop, RouteInfo> results = new HashMap<>();
+
+        for(int stop : stops) {
+            results.put(graph.getStop(stop), toRouteInfo(stop));
+        }
+
+        return results;
+    }
+
+    /**
+     * Returns the path from the source to a stop of the path
+     * @param target Target stop id
+     * @return List of RouteInfo objects, one per route taken. Empty if the stop isn't in the path
+     */
+    @Override
+    public List<RouteInfo> pathTo(int target) {
+        int end = indexOf(target);
+        List<RouteInfo> path = new ArrayList<>(Math.max(0, end));
+
+        for(int i = 1; i <= end; i++) {
+            path.add(toRouteInfo(i, stops[i]));
+        }
+
+        return path;
+    }
+
+    /**
+     * Builds the RouteInfo of a stop
+     * @param v Stop id
+     * @return RouteInfo of the stop
+     */
+    @Override
+    RouteInfo toRouteInfo(int v) {
+        int i = indexOf(v);
+        if(i < 0) {
+            return new RouteInfo(null, null, null, null, Float.POSITIVE_INFINITY, criterion.toString());
+        }
+
+        return toRouteInfo(i, v);
+    }
+
+    private RouteInfo toRouteInfo(int i, int v) {
+        if(i == 0) {
+            return new RouteInfo(null, graph.getStop(v), null, null, 0, criterion.toString());
+        }
+
+        return new RouteInfo(
+                graph.getStop(stops[i - 1]),
+                graph.getStop(v),
+                graph.getRoute(edges[i]),
+                Transport.values()[transports[i]],
+                pathCosts[i],
+                criterion.toString()
+        );
+    }
+}
@@ -0,0 +1,89 @@
+package pt.pa.routing;
+
+import pt.pa.model.Criterion;
+
+import java.util.Arrays;
+
+/**
+ * Sequence of original routes walked from a source stop, used to unpack the paths found over
+ * shortcuts or overlay arcs. If the walk comes back to a stop it already visited (possible when some
+ * routes have no cost), the loop is cut so the resulting path is simple
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+class PathWalk {
+    private final RoutingGraph graph;
+    private final SearchWorkspace workspace;
+    private int[] stops = new int[16];
+    private int[] edges = new int[16];
+    private int[] transports = new int[16];
+    private int steps;
+
+    /**
+     * PathWalk constructor
+     * @param graph Graph being walked
+     * @param workspace Workspace of the current search, used to find the stops already visited
+     * @param source Stop where the walk starts
+     */
+    PathWalk(RoutingGraph graph, SearchWorkspace workspace, int source) {
+        this.graph = graph;
+        this.workspace = workspace;
+
+        stops[0] = source;
+        edges[0] = -1;
+        transports[0] = -1;
+        workspace.setPosition(source, 0);
+    }
+
+    /**
+     * Returns the stop where the walk currently is
+     * @return Stop id
+     */
+    int last() {
+        return stops[steps];
+    }
+
+    /**
+     * Walks a route from the current stop
+     * @param edge Edge id of the route
+     * @param transport Transport ordinal used
+     */
+    void add(int edge, int transport) {
+        int end = graph.opposite(edge, last());
+
+        int position = workspace.position(end);
+        if(position >= 0) {
+            for(int i = position + 1; i <= steps; i++) {
+                workspace.setPosition(stops[i], -1);
+            }
+            steps = position;
+            return;
+        }
+
+        steps++;
+        if(steps == stops.length) {
+            stops = Arrays.copyOf(stops, 2 * steps);
+            edges = Arrays.copyOf(edges, 2 * steps);
+            transports = Arrays.copyOf(transports, 2 * steps);
+        }
+        stops[steps] = end;
+        edges[steps] = edge;
+        transports[steps] = transport;
+        workspace.setPosition(end, steps);
+    }
+
+    /**
+     * Turns the walk into a tree that only contains the walked path
+     * @param criterion Criterion of the costs
+     * @param scannedStops Number of scanned stops of the search
+     * @return ShortestPathTree with the walked path
+     */
+    ShortestPathTree toTree(Criterion criterion, int scannedStops) {
+        int length = steps + 1;
+        return new PathTree(graph, criterion, Arrays.copyOf(stops, length), Arrays.copyOf(edges, length),
+                Arrays.copyOf(transports, length), scannedStops);
+    }
+}
@@ -0,0 +1,191 @@
+package pt.pa.routing;
+
+import pt.pa.model.Criterion;
+import pt.pa.model.Stop;
+import pt.pa.model.TransportSet;
+import pt.pa.model.TransportsMap.RouteInfo;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Costs between a list of origins and a list of destinations, stored in a dense row-major array.
+ * It's calculated with one single-source search per origin, and the searches of different origins
+ * run in parallel in a ForkJoinPool. A single origin is searched with delta-stepping instead
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public class RouteMatrix {
+    private final RoutingGraph graph;
+    private final int[] sources;
+    private final int[] targets;
+    private final float[] costs;
+    // Search tree of each origin, only kept when the paths are requested
+    private final ShortestPathTree[] trees;
+
+    private RouteMatrix(RoutingGraph graph, int[] sources, int[] targets, boolean keepPaths) {
+        this.graph = graph;
+        this.sources = sources;
+        this.targets = targets;
+        this.costs = new float[sources.length * targets.length];
+        this.trees = keepPaths ? new ShortestPathTree[sources.length] : null;
+    }
+
+    /**
+     * Calculates the costs between every origin and every destination
+     * @param graph RoutingGraph to search
+     * @param sources Ids of the origin stops
+     * @param targets Ids of the destination stops
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @param keepPaths True to keep the search trees, so the paths can be rebuilt
+     * @param pool ForkJoinPool that runs the searches
+     * @return RouteMatrix with one row per origin
+     */
+    public static RouteMatrix compute(RoutingGraph graph, int[] sources, int[] targets, TransportSet transports,
+                                      Criterion criterion, boolean keepPaths, ForkJoinPool pool) {
+        RouteMatrix matrix = new RouteMatrix(graph, sources.clone(), targets.clone(), keepPaths);
+        if(sources.length == 1) {
+            // A single origin can't be split, so the search itself runs in parallel
+            matrix.fillRow(0, DeltaStepping.search(graph, sources[0], transports, criterion));
+        } else {
+            pool.invoke(new Rows(matrix, transports, criterion, 0, sources.length));
+        }
+
+        return matrix;
+    }
+
+    /**
+     * Stores the costs of an origin from its search tree
+     */
+    private void fillRow(int source, ShortestPathTree tree) {
+        int row = source * targets.length;
+        for(int j = 0; j < targets.length; j++) {
+            costs[row + j] = tree.getCost(targets[j]);
+        }
+        if(trees != null) trees[source] = tree;
+    }
+
+    /**
+     * Returns the number of origins
+     * @return Number of rows
+     */
+    public int numSources() {
+        return sources.length;
+    }
+
+    /**
+     * Returns the number of destinations
+     * @return Number of columns
+     */
+    public int numTargets() {
+        return targets.length;
+    }
+
+    /**
+     * Returns the cost from an origin to a destination
+     * @param source Index of the origin
+     * @param target Index of the destination
+     * @return Cost of the shortest path. Infinity if the destination can't be reached
+     */
+    public float getCost(int source, int target) {
+        return costs[source * targets.length + target];
+    }
+
+    /**
+     * Returns the costs of every pair, row by row
+     * @return Copy of the costs, where the cost from origin i to destination j is at i * numTargets() + j
+     */
+    public float[] getCosts() {
+        return costs.clone();
+    }
+
+    /**
+     * Returns the costs from an origin to every destination
+     * @param source Index of the origin
+     * @return Copy of the row of the origin
+     */
+    public float[] getRow(int source) {
+        return Arrays.copyOfRange(costs, source * targets.length, (source + 1) * targets.length);
+    }
+
+    /**
+     * Checks if the paths can be rebuilt
+     * @return True if the search trees were kept. False otherwise
+     */
+    public boolean hasPaths() {
+        return trees != null;
+    }
+
+    /**
+     * Rebuilds the path from an origin to a destination
+     * @param source Index of the origin
+     * @param target Index of the destination
+     * @return List containing the route information of each route taken. Empty if there's no route
+     */
+    public List<RouteInfo> pathTo(int source, int target) {
+        if(trees == null) {
+            throw new IllegalStateException("A matriz foi calculada sem caminhos");
+        }
+
+        return trees[source].pathTo(targets[target]);
+    }
+
+    /**
+     * Returns the origin of a row
+     * @param source Index of the origin
+     * @return Stop object
+     */
+    public Stop getSource(int source) {
+        return graph.getStop(sources[source]);
+    }
+
+    /**
+     * Returns the destination of a column
+     * @param target Index of the destination
+     * @return Stop object
+     */
+    public Stop getTarget(int target) {
+        return graph.getStop(targets[target]);
+    }
+
+    /**
+     * Task that fills a range of rows, splitting it in half until a single origin is left
+     */
+    private static class Rows extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RouteMatrix matrix;
+        private final TransportSet transports;
+        private final Criterion criterion;
+        private final int from;
+        private final int to;
+
+        private Rows(RouteMatrix matrix, TransportSet transports, Criterion criterion, int from, int to) {
+            this.matrix = matrix;
+            this.transports = transports;
+            this.criterion = criterion;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Rows(matrix, transports, criterion, from, middle),
+                        new Rows(matrix, transports, criterion, middle, to));
+                return;
+            }
+
+            for(int i = from; i < to; i++) {
+                matrix.fillRow(i, Dijkstra.search(matrix.graph, matrix.sources[i], transports, criterion));
+            }
+        }
+    }
+}
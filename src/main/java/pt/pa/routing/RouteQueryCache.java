@@ -0,0 +1,164 @@
+package pt.pa.routing;
+
+import pt.pa.model.Criterion;
+import pt.pa.model.TransportSet;
+import pt.pa.model.TransportsMap.RouteInfo;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of the routes calculated between two stops. Entries belong to a version of the
+ * network: once the version changes (a route was toggled, a transport disabled or enabled, a duration
+ * updated...), every entry is discarded on the next access. Queries made on an older version, which
+ * may number the stops differently, neither read nor write the cache
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public class RouteQueryCache {
+    /**
+     * Default maximum number of entries
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final int capacity;
+    private final LinkedHashMap<Query, List<RouteInfo>> entries;
+    private long version;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * RouteQueryCache constructor
+     * @param capacity Maximum number of entries
+     */
+    public RouteQueryCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Query, List<RouteInfo>> eldest) {
+                if(size() > RouteQueryCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * RouteQueryCache constructor with the default capacity
+     */
+    public RouteQueryCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates the key of a query
+     * @param source Source stop id
+     * @param target Target stop id
+     * @param criterion Optimization criterion
+     * @param transports Set of Transports to be considered
+     * @param searchMode Algorithm used
+     * @return Query key
+     */
+    public static Query key(int source, int target, Criterion criterion, TransportSet transports, SearchMode searchMode) {
+        return new Query(source, target, RoutingGraph.key(criterion, transports) << 4 | searchMode.ordinal());
+    }
+
+    /**
+     * Returns the cached route of a query
+     * @param version Current version of the network
+     * @param query Query key
+     * @return Cached route or null if it isn't cached (always null for an older version)
+     */
+    public synchronized List<RouteInfo> get(long version, Query query) {
+        sync(version);
+
+        List<RouteInfo> route = version == this.version ? entries.get(query) : null;
+        if(route == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+
+        return route;
+    }
+
+    /**
+     * Caches the route of a query
+     * @param version Version of the network the route was calculated on
+     * @param query Query key
+     * @param route Route to cache
+     * @return Unmodifiable copy of the route, as it was cached (not cached if the version is older)
+     */
+    public synchronized List<RouteInfo> put(long version, Query query, List<RouteInfo> route) {
+        List<RouteInfo> copy = List.copyOf(route);
+        sync(version);
+        if(version == this.version) {
+            entries.put(query, copy);
+        }
+
+        return copy;
+    }
+
+    /**
+     * Discards every entry if the network changed
+     */
+    private void sync(long version) {
+        if(version > this.version) {
+            entries.clear();
+            this.version = version;
+        }
+    }
+
+    /**
+     * Returns the number of cached routes
+     * @return Number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of queries answered by the cache
+     * @return Number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of queries that weren't cached
+     * @return Number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of entries removed to respect the capacity
+     * @return Number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "acertos: " + hits + ", falhas: " + misses + ", remoções: " + evictions;
+    }
+
+    /**
+     * Key of a query: source and target stop ids, and the criterion, transports and algorithm packed in one int
+     * @param source Source stop id
+     * @param target Target stop id
+     * @param metric Criterion ordinal, transport bits and algorithm ordinal
+     */
+    public record Query(int source, int target, int metric) {
+    }
+}
@@ -0,0 +1,397 @@
+package pt.pa.routing;
+
+import com.brunomnsilva.smartgraph.graph.Edge;
+import com.brunomnsilva.smartgraph.graph.Vertex;
+import pt.pa.model.Criterion;
+import pt.pa.model.Route;
+import pt.pa.model.Stop;
+import pt.pa.model.Transport;
+import pt.pa.model.TransportSet;
+import pt.pa.model.TransportsMap;
+import pt.pa.utils.GeoUtil;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable compressed-sparse-row snapshot of a TransportsMap used by the routing algorithms.
+ * Stops are identified by int ids, every undirected route is stored as two arcs and the value of
+ * each criterion/transport pair is kept in a float array indexed by edge id (NaN when the transport
+ * is not available or the route is inactive)
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public final class RoutingGraph {
+    /**
+     * Number of transport types
+     */
+    static final int TRANSPORTS = Transport.values().length;
+
+    final Stop[] stops;
+    final Map<Stop, Integer> stopIds;
+    final Route[] routes;
+    final int[] edgeSource;
+    final int[] edgeTarget;
+
+    final int[] offsets;
+    final int[] targets;
+    final int[] arcEdges;
+
+    final float[][] weights;
+    // Transports with a value on each edge, per criterion (one bit per Transport ordinal)
+    final int[][] availableTransports;
+
+    final float[] latitudes;
+    final float[] longitudes;
+
+    // Value added to every route of each criterion so that no route is negative (NaN until first requested)
+    private final float[] shifts;
+    private final float[] heuristicScales;
+    private final Landmarks[] landmarks;
+    // Cheapest value of each edge, indexed by key(criterion, transports) and built on the first request
+    private final MinimumWeights[] minimumWeights;
+
+    private RoutingGraph(Stop[] stops, Route[] routes, int[] edgeSource, int[] edgeTarget) {
+        this.stops = stops;
+        this.routes = routes;
+        this.edgeSource = edgeSource;
+        this.edgeTarget = edgeTarget;
+
+        this.stopIds = new HashMap<>();
+        this.latitudes = new float[stops.length];
+        this.longitudes = new float[stops.length];
+        for(int i = 0; i < stops.length; i++) {
+            stopIds.put(stops[i], i);
+            latitudes[i] = stops[i].getLatitude();
+            longitudes[i] = stops[i].getLongitude();
+        }
+
+        // Count the arcs of each stop, then turn the counts into offsets
+        this.offsets = new int[stops.length + 1];
+        for(int e = 0; e < routes.length; e++) {
+            offsets[edgeSource[e] + 1]++;
+            offsets[edgeTarget[e] + 1]++;
+        }
+        for(int v = 0; v < stops.length; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        this.targets = new int[offsets[stops.length]];
+        this.arcEdges = new int[offsets[stops.length]];
+        int[] next = Arrays.copyOf(offsets, stops.length);
+        for(int e = 0; e < routes.length; e++) {
+            int u = edgeSource[e];
+            int v = edgeTarget[e];
+
+            targets[next[u]] = v;
+            arcEdges[next[u]++] = e;
+            targets[next[v]] = u;
+            arcEdges[next[v]++] = e;
+        }
+
+        Criterion[] criteria = Criterion.values();
+        this.shifts = new float[criteria.length];
+        Arrays.fill(shifts, Float.NaN);
+        this.landmarks = new Landmarks[criteria.length];
+        this.minimumWeights = new MinimumWeights[criteria.length << TRANSPORTS];
+        this.heuristicScales = new float[criteria.length];
+        Arrays.fill(heuristicScales, Float.NaN);
+        Transport[] transports = Transport.values();
+        this.weights = new float[criteria.length * TRANSPORTS][routes.length];
+        this.availableTransports = new int[criteria.length][routes.length];
+        for(Criterion criterion : criteria) {
+            int[] available = availableTransports[criterion.ordinal()];
+            for(Transport transport : transports) {
+                float[] values = weights[index(criterion, transport.ordinal())];
+
+                for(int e = 0; e < routes.length; e++) {
+                    values[e] = routes[e].isActive() ? criterion.getRawValue(routes[e], transport) : Float.NaN;
+                    if(!Float.isNaN(values[e])) available[e] |= 1 << transport.ordinal();
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a snapshot of the current state of a TransportsMap
+     * @param map TransportsMap object
+     * @return RoutingGraph with the stops and routes of the map
+     */
+    public static RoutingGraph build(TransportsMap map) {
+        return build(map, null);
+    }
+
+    /**
+     * Builds a snapshot of the current state of a TransportsMap, keeping the landmark tables of a
+     * previous snapshot for the criteria whose values didn't change and updating its minimum weight
+     * tables only on the edited routes
+     * @param map TransportsMap object
+     * @param previous Previous snapshot of the map (null if none)
+     * @return RoutingGraph with the stops and routes of the map
+     */
+    public static RoutingGraph build(TransportsMap map, RoutingGraph previous) {
+        Collection<Vertex<Stop>> vertices = map.vertices();
+        Collection<Edge<Route, Stop>> edges = map.edges();
+
+        Stop[] stops = new Stop[vertices.size()];
+        Map<Stop, Integer> ids = new HashMap<>();
+        int i = 0;
+        for(Vertex<Stop> vertex : vertices) {
+            stops[i] = vertex.element();
+            ids.put(stops[i], i++);
+        }
+
+        Route[] routes = new Route[edges.size()];
+        int[] edgeSource = new int[edges.size()];
+        int[] edgeTarget = new int[edges.size()];
+        int e = 0;
+        for(Edge<Route, Stop> edge : edges) {
+            routes[e] = edge.element();
+            edgeSource[e] = ids.get(edge.vertices()[0].element());
+            edgeTarget[e++] = ids.get(edge.vertices()[1].element());
+        }
+
+        RoutingGraph graph = new RoutingGraph(stops, routes, edgeSource, edgeTarget);
+        if(previous != null && graph.sameTopology(previous)) {
+            synchronized(previous) {
+                for(Criterion criterion : Criterion.values()) {
+                    int[] changedEdges = graph.changedEdges(previous, criterion);
+                    if(changedEdges.length == 0) {
+                        graph.landmarks[criterion.ordinal()] = previous.landmarks[criterion.ordinal()];
+                    }
+
+                    // Only the edited routes are calculated again in the minimum weight tables
+                    for(int mask = 0; mask < 1 << TRANSPORTS; mask++) {
+                        int key = criterion.ordinal() << TRANSPORTS | mask;
+                        if(previous.minimumWeights[key] != null) {
+                            graph.minimumWeights[key] = previous.minimumWeights[key].update(graph, changedEdges);
+                        }
+                    }
+                }
+            }
+        }
+
+        return graph;
+    }
+
+    /**
+     * Returns the index of the weight array of a criterion/transport pair
+     * @param criterion Optimization criterion
+     * @param transport Transport ordinal
+     * @return Index in the weights array
+     */
+    static int index(Criterion criterion, int transport) {
+        return criterion.ordinal() * TRANSPORTS + transport;
+    }
+
+    /**
+     * Returns a key that identifies a criterion and a set of transports
+     * @param criterion Optimization criterion
+     * @param transports Set of transports
+     * @return Criterion ordinal followed by the transport mask
+     */
+    static int key(Criterion criterion, TransportSet transports) {
+        return criterion.ordinal() << TRANSPORTS | transports.mask();
+    }
+
+    /**
+     * Checks if another snapshot has the same stops and routes, with the same ids
+     * (only the values of the routes may differ)
+     * @param other RoutingGraph to compare
+     * @return True if both have the same topology. False otherwise
+     */
+    boolean sameTopology(RoutingGraph other) {
+        if(other == this) return true;
+        if(other.stops.length != stops.length || other.routes.length != routes.length) return false;
+
+        for(int i = 0; i < stops.length; i++) {
+            if(other.stops[i] != stops[i]) return false;
+        }
+        for(int e = 0; e < routes.length; e++) {
+            if(other.routes[e] != routes[e]) return false;
+        }
+
+        return Arrays.equals(edgeSource, other.edgeSource) && Arrays.equals(edgeTarget, other.edgeTarget);
+    }
+
+    /**
+     * Returns the edges whose values of a criterion differ from another snapshot with the same topology
+     */
+    private int[] changedEdges(RoutingGraph other, Criterion criterion) {
+        int[] changed = new int[routes.length];
+        int count = 0;
+        for(int e = 0; e < routes.length; e++) {
+            for(int t = 0; t < TRANSPORTS; t++) {
+                if(Float.compare(weights[index(criterion, t)][e], other.weights[index(criterion, t)][e]) != 0) {
+                    changed[count++] = e;
+                    break;
+                }
+            }
+        }
+
+        return Arrays.copyOf(changed, count);
+    }
+
+    /**
+     * Returns the cheapest value of each edge for a criterion and a set of transports, computing it on the first call
+     * @param criterion Optimization criterion
+     * @param transports Set of Transports to be considered
+     * @return MinimumWeights of the criterion and transports
+     */
+    synchronized MinimumWeights getMinimumWeights(Criterion criterion, TransportSet transports) {
+        int key = key(criterion, transports);
+        if(minimumWeights[key] == null) {
+            minimumWeights[key] = MinimumWeights.compute(this, criterion, transports);
+        }
+
+        return minimumWeights[key];
+    }
+
+    /**
+     * Returns the landmark tables of a criterion, computing them on the first call
+     * @param criterion Optimization criterion
+     * @return Landmarks of the criterion
+     */
+    public synchronized Landmarks getLandmarks(Criterion criterion) {
+        if(landmarks[criterion.ordinal()] == null) {
+            landmarks[criterion.ordinal()] = Landmarks.compute(this, criterion, Landmarks.DEFAULT_COUNT);
+        }
+
+        return landmarks[criterion.ordinal()];
+    }
+
+    /**
+     * Returns the value added to every route of a criterion before searching, computing it on the first call.
+     * It's the smallest value that makes every route non-negative (zero for distance and duration), so
+     * Dijkstra can search the shifted values. Routes are undirected, so a negative route would be a negative
+     * cycle on its own and vertex potentials can't remove it.
+     * A search over the shifted values minimises value + shift * routes, so when the shift isn't zero the
+     * path found may have more value than the path with the fewest value but also fewer routes
+     * @param criterion Optimization criterion
+     * @return Shift of the criterion
+     */
+    public synchronized float getShift(Criterion criterion) {
+        if(Float.isNaN(shifts[criterion.ordinal()])) {
+            float min = 0;
+            for(int t = 0; t < TRANSPORTS; t++) {
+                for(float value : weights[index(criterion, t)]) {
+                    if(value < min) min = value;
+                }
+            }
+
+            shifts[criterion.ordinal()] = -min;
+        }
+
+        return shifts[criterion.ordinal()];
+    }
+
+    /**
+     * Returns the factor that turns the great-circle distance between two stops into a lower bound
+     * of a criterion, computing it on the first call. It's the smallest ratio between the shifted
+     * value of a route and the great-circle distance between its stops (for durations, the inverse
+     * of the fastest speed in the data), so the A* heuristic never overestimates
+     * @param criterion Optimization criterion
+     * @return Heuristic scale of the criterion (zero if the heuristic can't be used)
+     */
+    public synchronized float getHeuristicScale(Criterion criterion) {
+        if(Float.isNaN(heuristicScales[criterion.ordinal()])) {
+            float shift = getShift(criterion);
+            double scale = Double.POSITIVE_INFINITY;
+
+            for(int e = 0; e < routes.length; e++) {
+                double distance = greatCircleDistance(edgeSource[e], edgeTarget[e]);
+                if(distance <= 0) continue;
+
+                for(int t = 0; t < TRANSPORTS; t++) {
+                    float value = weights[index(criterion, t)][e];
+                    if(!Float.isNaN(value)) scale = Math.min(scale, (value + shift) / distance);
+                }
+            }
+
+            // Small safety margin against rounding errors breaking the consistency of the heuristic
+            heuristicScales[criterion.ordinal()] = Double.isInfinite(scale) ? 0 : (float) Math.max(0, scale * 0.999);
+        }
+
+        return heuristicScales[criterion.ordinal()];
+    }
+
+    /**
+     * Returns the great-circle distance between two stops
+     * @param u First stop id
+     * @param v Second stop id
+     * @return Distance in kilometers
+     */
+    double greatCircleDistance(int u, int v) {
+        return GeoUtil.greatCircleDistance(latitudes[u], longitudes[u], latitudes[v], longitudes[v]);
+    }
+
+    /**
+     * Returns the number of stops
+     * @return Number of stops
+     */
+    public int numStops() {
+        return stops.length;
+    }
+
+    /**
+     * Returns the number of routes
+     * @return Number of routes
+     */
+    public int numEdges() {
+        return routes.length;
+    }
+
+    /**
+     * Returns the stop with a given id
+     * @param id Stop id
+     * @return Stop object
+     */
+    public Stop getStop(int id) {
+        return stops[id];
+    }
+
+    /**
+     * Returns the id of a stop
+     * @param stop Stop object
+     * @return Stop id if the stop belongs to the snapshot. -1 otherwise
+     */
+    public int getId(Stop stop) {
+        Integer id = stopIds.get(stop);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the route with a given edge id
+     * @param edge Edge id
+     * @return Route object
+     */
+    public Route getRoute(int edge) {
+        return routes[edge];
+    }
+
+    /**
+     * Returns the stop at the other end of an edge
+     * @param edge Edge id
+     * @param stop Id of one of the ends of the edge
+     * @return Id of the other end
+     */
+    public int opposite(int edge, int stop) {
+        return edgeSource[edge] == stop ? edgeTarget[edge] : edgeSource[edge];
+    }
+
+    /**
+     * Returns the value of an edge for a criterion and transport
+     * @param criterion Optimization criterion
+     * @param transport Transport type
+     * @param edge Edge id
+     * @return Value of the edge. NaN if the transport is not available
+     */
+    public float getWeight(Criterion criterion, Transport transport, int edge) {
+        return weights[index(criterion, transport.ordinal())][edge];
+    }
+}
@@ -0,0 +1,41 @@
+package pt.pa.routing;
+
+/**
+ * Enumerator for the shortest path algorithms available for point-to-point routes
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public enum SearchMode {
+    /**
+     * Bellman-Ford over every route (reference algorithm)
+     */
+    BELLMAN_FORD,
+    /**
+     * Dijkstra over the shifted values
+     */
+    DIJKSTRA,
+    /**
+     * A* guided by the great-circle distance to the end stop
+     */
+    ASTAR,
+    /**
+     * A* guided by landmark lower bounds (ALT)
+     */
+    ALT,
+    /**
+     * Dijkstra from both the start and the end stop, meeting in the middle
+     */
+    BIDIRECTIONAL,
+    /**
+     * Dijkstra over a customizable overlay of cells, customized again only where route values change
+     */
+    OVERLAY,
+    /**
+     * Bidirectional search over a Contraction Hierarchies index, built in the background
+     * (falls back to DIJKSTRA while the index isn't ready)
+     */
+    CONTRACTION_HIERARCHIES
+}
@@ -0,0 +1,205 @@
+package pt.pa.routing;
+
+import java.util.Arrays;
+
+/**
+ * Working arrays of a Dijkstra search, reused between the searches of the same thread.
+ * Instead of filling the arrays before every search, each search gets a new stamp and a value
+ * only counts if it was written with the current stamp. Each workspace has a second one for the
+ * searches that need two at the same time (bidirectional searches and the unpacking of paths)
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+class SearchWorkspace {
+    private static final ThreadLocal<SearchWorkspace> LOCAL = ThreadLocal.withInitial(SearchWorkspace::new);
+
+    private float[] reduced = new float[0];
+    private int[] predStops = new int[0];
+    private int[] predEdges = new int[0];
+    private int[] predTransports = new int[0];
+    private float[] heuristic = new float[0];
+    private int[] positions = new int[0];
+    private int[] reachedStamps = new int[0];
+    private int[] settledStamps = new int[0];
+    private int[] heuristicStamps = new int[0];
+    private int[] positionStamps = new int[0];
+    private int stamp;
+    private IndexedMinHeap heap = new IndexedMinHeap(0);
+    private SearchWorkspace other;
+
+    /**
+     * Returns the workspace of the current thread, ready for a new search
+     * @param n Number of stops of the graph to search
+     * @return SearchWorkspace object
+     */
+    static SearchWorkspace acquire(int n) {
+        SearchWorkspace workspace = LOCAL.get();
+        workspace.reset(n);
+        return workspace;
+    }
+
+    /**
+     * Returns the second workspace of the current thread, ready for a new search.
+     * The values of this workspace are kept
+     * @param n Number of stops of the graph to search
+     * @return SearchWorkspace object
+     */
+    SearchWorkspace other(int n) {
+        if(other == null) other = new SearchWorkspace();
+        other.reset(n);
+        return other;
+    }
+
+    private void reset(int n) {
+        if(reduced.length < n) {
+            reduced = new float[n];
+            predStops = new int[n];
+            predEdges = new int[n];
+            predTransports = new int[n];
+            heuristic = new float[n];
+            positions = new int[n];
+            reachedStamps = new int[n];
+            settledStamps = new int[n];
+            heuristicStamps = new int[n];
+            positionStamps = new int[n];
+            heap = new IndexedMinHeap(n);
+            stamp = 0;
+        }
+
+        heap.clear();
+        if(++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(reachedStamps, 0);
+            Arrays.fill(settledStamps, 0);
+            Arrays.fill(heuristicStamps, 0);
+            Arrays.fill(positionStamps, 0);
+            stamp = 1;
+        }
+    }
+
+    /**
+     * Returns the heap of the search
+     * @return Empty IndexedMinHeap at the start of the search
+     */
+    IndexedMinHeap heap() {
+        return heap;
+    }
+
+    /**
+     * Returns the shifted cost of a stop in the current search
+     * @param v Stop id
+     * @return Shifted cost. Infinity if the stop wasn't reached
+     */
+    float reduced(int v) {
+        return reachedStamps[v] == stamp ? reduced[v] : Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Sets the shifted cost of a stop and the route used to arrive at it
+     * @param v Stop id
+     * @param value Shifted cost
+     * @param predStop Stop the route comes from (-1 if none)
+     * @param predEdge Edge id of the route (-1 if none)
+     * @param predTransport Transport ordinal used (-1 if none)
+     */
+    void reach(int v, float value, int predStop, int predEdge, int predTransport) {
+        reduced[v] = value;
+        predStops[v] = predStop;
+        predEdges[v] = predEdge;
+        predTransports[v] = predTransport;
+        reachedStamps[v] = stamp;
+    }
+
+    /**
+     * Returns the stop the route used to arrive at a reached stop comes from
+     * @param v Stop id
+     * @return Stop id. -1 if none
+     */
+    int predStop(int v) {
+        return predStops[v];
+    }
+
+    /**
+     * Returns the edge used to arrive at a reached stop
+     * @param v Stop id
+     * @return Edge id. -1 if none
+     */
+    int predEdge(int v) {
+        return predEdges[v];
+    }
+
+    /**
+     * Returns the transport used to arrive at a reached stop
+     * @param v Stop id
+     * @return Transport ordinal. -1 if none
+     */
+    int predTransport(int v) {
+        return predTransports[v];
+    }
+
+    /**
+     * Checks if a stop was settled in the current search
+     * @param v Stop id
+     * @return True if the stop is settled. False otherwise
+     */
+    boolean isSettled(int v) {
+        return settledStamps[v] == stamp;
+    }
+
+    /**
+     * Marks a stop as settled
+     * @param v Stop id
+     */
+    void settle(int v) {
+        settledStamps[v] = stamp;
+    }
+
+    /**
+     * Checks if the heuristic of a stop was already calculated in the current search
+     * @param v Stop id
+     * @return True if the heuristic is known. False otherwise
+     */
+    boolean hasHeuristic(int v) {
+        return heuristicStamps[v] == stamp;
+    }
+
+    /**
+     * Returns the heuristic of a stop, calculated in the current search
+     * @param v Stop id
+     * @return Heuristic value
+     */
+    float heuristic(int v) {
+        return heuristic[v];
+    }
+
+    /**
+     * Stores the heuristic of a stop
+     * @param v Stop id
+     * @param value Heuristic value
+     */
+    void setHeuristic(int v, float value) {
+        heuristic[v] = value;
+        heuristicStamps[v] = stamp;
+    }
+
+    /**
+     * Returns the position of a stop in the path being built
+     * @param v Stop id
+     * @return Position. -1 if the stop isn't in the path
+     */
+    int position(int v) {
+        return positionStamps[v] == stamp ? positions[v] : -1;
+    }
+
+    /**
+     * Sets the position of a stop in the path being built
+     * @param v Stop id
+     * @param position Position (-1 to remove the stop)
+     */
+    void setPosition(int v, int position) {
+        positions[v] = position;
+        positionStamps[v] = stamp;
+    }
+}
@@ -0,0 +1,183 @@
+package pt.pa.routing;
+
+import pt.pa.model.Criterion;
+import pt.pa.model.Stop;
+import pt.pa.model.Transport;
+import pt.pa.model.TransportsMap.RouteInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a single-source search over a RoutingGraph, kept in primitive arrays indexed by stop id
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public class ShortestPathTree {
+    final RoutingGraph graph;
+    final Criterion criterion;
+    final int source;
+    final float[] costs;
+    final int[] predEdges;
+    final int[] predTransports;
+    final int scannedStops;
+
+    /**
+     * ShortestPathTree constructor
+     * @param graph Graph that was searched
+     * @param criterion Optimization criterion
+     * @param source Source stop id
+     * @param costs Cost to arrive at each stop
+     * @param predEdges Edge used to arrive at each stop (-1 if none)
+     * @param predTransports Transport ordinal used to arrive at each stop (-1 if none)
+     * @param scannedStops Number of times a stop had its routes examined during the search
+     */
+    ShortestPathTree(RoutingGraph graph, Criterion criterion, int source, float[] costs, int[] predEdges, int[] predTransports, int scannedStops) {
+        this.graph = graph;
+        this.criterion = criterion;
+        this.source = source;
+        this.costs = costs;
+        this.predEdges = predEdges;
+        this.predTransports = predTransports;
+        this.scannedStops = scannedStops;
+    }
+
+    /**
+     * Returns the graph that was searched
+     * @return RoutingGraph object
+     */
+    public RoutingGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the source stop
+     * @return Source Stop
+     */
+    public Stop getSource() {
+        return graph.getStop(source);
+    }
+
+    /**
+     * Returns the cost to arrive at a stop
+     * @param stop Stop id
+     * @return Cost to arrive. Infinity if the stop is unreachable
+     */
+    public float getCost(int stop) {
+        return costs[stop];
+    }
+
+    /**
+     * Returns the number of times a stop had its routes examined during the search, used to compare
+     * the work done by the different algorithms
+     * @return Number of scanned stops
+     */
+    public int getScannedStops() {
+        return scannedStops;
+    }
+
+    /**
+     * Converts the tree into the map format used by the strategies
+     * @return Map containing the route data of every stop
+     */
+    public Map<Stop, RouteInfo> toRouteInfoMap() {
+        Map<Stop, RouteInfo> results = new HashMap<>();
+
+        for(int v = 0; v < graph.numStops(); v++) {
+            results.put(graph.getStop(v), toRouteInfo(v));
+        }
+
+        return results;
+    }
+
+    /**
+     * Returns the path from the source to a stop
+     * @param target Target Stop
+     * @return List of RouteInfo objects, one per route taken. Empty if the stop can't be reached
+     */
+    public List<RouteInfo> pathTo(Stop target) {
+        return pathTo(graph.getId(target));
+    }
+
+    /**
+     * Returns the path from the source to a stop
+     * @param target Target stop id
+     * @return List of RouteInfo objects, one per route taken. Empty if the stop can't be reached
+     */
+    public List<RouteInfo> pathTo(int target) {
+        List<RouteInfo> path = new ArrayList<>();
+
+        for(int v = target; predEdges[v] >= 0; v = graph.opposite(predEdges[v], v)) {
+            path.add(toRouteInfo(v));
+        }
+        Collections.reverse(path);
+
+        return path;
+    }
+
+    /**
+     * Builds the RouteInfo of a stop
+     * @param v Stop id
+     * @return RouteInfo of the stop
+     */
+    RouteInfo toRouteInfo(int v) {
+        int edge = predEdges[v];
+
+        if(edge < 0) {
+            Stop arrivedAt = v == source ? graph.getStop(v) : null;
+            return new RouteInfo(null, arrivedAt, null, null, costs[v], criterion.toString());
+        }
+
+        return new RouteInfo(
+                graph.getStop(graph.opposite(edge, v)),
+                graph.getStop(v),
+                graph.getRoute(edge),
+                Transport.values()[predTransports[v]],
+                costs[v],
+                criterion.toString()
+        );
+    }
+
+    /**
+     * Calculates the exact cost of each stop along the path given by the predecessors, for the searches
+     * that order the stops by shifted values
+     * @param graph RoutingGraph that was searched
+     * @param minimum Cheapest value and transport of each edge
+     * @param source Source stop id
+     * @param predEdges Edge used to arrive at each stop (-1 if none)
+     * @return Cost to arrive at each stop. Infinity if it wasn't reached
+     */
+    static float[] pathCosts(RoutingGraph graph, MinimumWeights minimum, int source, int[] predEdges) {
+        int n = graph.numStops();
+        float[] costs = new float[n];
+        Arrays.fill(costs, Float.NaN);
+        costs[source] = 0;
+
+        int[] path = new int[n];
+        for(int v = 0; v < n; v++) {
+            int length = 0;
+            int u = v;
+            while(Float.isNaN(costs[u]) && predEdges[u] >= 0) {
+                path[length++] = u;
+                u = graph.opposite(predEdges[u], u);
+            }
+
+            float cost = Float.isNaN(costs[u]) ? Float.POSITIVE_INFINITY : costs[u];
+            while(length > 0) {
+                int w = path[--length];
+                cost += minimum.values[predEdges[w]];
+                costs[w] = cost;
+            }
+            if(Float.isNaN(costs[v])) costs[v] = Float.POSITIVE_INFINITY;
+        }
+
+        return costs;
+    }
+}
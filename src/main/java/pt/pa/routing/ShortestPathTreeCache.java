@@ -0,0 +1,246 @@
+package pt.pa.routing;
+
+import pt.pa.model.Criterion;
+import pt.pa.model.TransportSet;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of complete shortest path trees, one per source stop, criterion and set of transports.
+ * Each tree remembers the routes it uses; when the network changes, a tree is only discarded if one of
+ * its routes changed or if a changed route now offers a cheaper way to reach a stop. Routes toggled off
+ * outside the tree keep it valid
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public class ShortestPathTreeCache {
+    /**
+     * Default maximum number of trees
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final int capacity;
+    private final LinkedHashMap<Long, Entry> entries;
+    private final LinkedHashMap<Long, Boolean> requested;
+    private long hits;
+    private long misses;
+    private long invalidations;
+
+    /**
+     * ShortestPathTreeCache constructor
+     * @param capacity Maximum number of trees
+     */
+    public ShortestPathTreeCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > ShortestPathTreeCache.this.capacity;
+            }
+        };
+        this.requested = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > 4 * ShortestPathTreeCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * ShortestPathTreeCache constructor with the default capacity
+     */
+    public ShortestPathTreeCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Returns the tree of a source for the current graph, building it if it isn't cached
+     * @param graph Current RoutingGraph of the network
+     * @param source Source stop id
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @return ShortestPathTree rooted at the source
+     */
+    public ShortestPathTree getOrBuild(RoutingGraph graph, int source, TransportSet transports, Criterion criterion) {
+        ShortestPathTree tree = get(graph, source, transports, criterion);
+        if(tree == null) {
+            tree = build(graph, source, transports, criterion);
+        }
+
+        return tree;
+    }
+
+    /**
+     * Returns the tree of a source for the current graph. If it isn't cached, it's only built if the
+     * source was already requested before, so one-off queries can use a faster point-to-point search
+     * @param graph Current RoutingGraph of the network
+     * @param source Source stop id
+     * @param transports Set of Transports to be considered
+     * @param criterion Optimization criterion
+     * @return ShortestPathTree rooted at the source, or null if the source is requested for the first time
+     */
+    public ShortestPathTree lookup(RoutingGraph graph, int source, TransportSet transports, Criterion criterion) {
+        synchronized(this) {
+            ShortestPathTree tree = get(graph, source, transports, criterion);
+            if(tree != null) {
+                return tree;
+            }
+
+            if(requested.put(key(source, transports, criterion), Boolean.TRUE) == null) {
+                return null;
+            }
+        }
+
+        return build(graph, source, transports, criterion);
+    }
+
+    /**
+     * Returns the cached tree of a source if it's still valid for the current graph
+     */
+    private synchronized ShortestPathTree get(RoutingGraph graph, int source, TransportSet transports, Criterion criterion) {
+        long key = key(source, transports, criterion);
+        Entry entry = entries.get(key);
+
+        if(entry != null && entry.tree.graph != graph) {
+            if(entry.isValidFor(graph, transports)) {
+                entry.rebind(graph);
+            } else {
+                entries.remove(key);
+                invalidations++;
+                entry = null;
+            }
+        }
+
+        if(entry == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry.tree;
+    }
+
+    /**
+     * Builds and caches the tree of a source. The search runs outside the lock, so trees of different
+     * sources can be built at the same time
+     */
+    private ShortestPathTree build(RoutingGraph graph, int source, TransportSet transports, Criterion criterion) {
+        ShortestPathTree tree = DeltaStepping.search(graph, source, transports, criterion);
+        Entry entry = new Entry(tree);
+        synchronized(this) {
+            entries.put(key(source, transports, criterion), entry);
+        }
+
+        return tree;
+    }
+
+    private static long key(int source, TransportSet transports, Criterion criterion) {
+        return (long) source << 32 | RoutingGraph.key(criterion, transports);
+    }
+
+    /**
+     * Returns the number of requests answered by a cached tree
+     * @return Number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of requests without a valid cached tree
+     * @return Number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of trees discarded because of changes in the routes they depend on
+     * @return Number of invalidations
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Cached tree, with the routes it uses and the shifted cost of each stop
+     */
+    private static class Entry {
+        private ShortestPathTree tree;
+        private final BitSet usedEdges;
+        private final float[] distances;
+        private final float shift;
+
+        /**
+         * Entry constructor
+         * @param tree Complete shortest path tree
+         */
+        private Entry(ShortestPathTree tree) {
+            int n = tree.graph.numStops();
+            this.tree = tree;
+            this.shift = tree.graph.getShift(tree.criterion);
+            this.usedEdges = new BitSet(tree.graph.numEdges());
+            this.distances = new float[n];
+
+            // Shifted cost of each stop: exact cost plus the shift of every route taken
+            int[] hops = new int[n];
+            int[] path = new int[n];
+            Arrays.fill(hops, -1);
+            hops[tree.source] = 0;
+            for(int v = 0; v < n; v++) {
+                if(tree.predEdges[v] >= 0) usedEdges.set(tree.predEdges[v]);
+
+                int length = 0;
+                int u = v;
+                while(hops[u] < 0 && tree.predEdges[u] >= 0) {
+                    path[length++] = u;
+                    u = tree.graph.opposite(tree.predEdges[u], u);
+                }
+                int count = Math.max(hops[u], 0);
+                while(length > 0) {
+                    hops[path[--length]] = ++count;
+                }
+
+                distances[v] = tree.costs[v] + Math.max(hops[v], 0) * shift;
+            }
+        }
+
+        /**
+         * Checks if the tree is still a shortest path tree of a new graph with the same routes
+         */
+        private boolean isValidFor(RoutingGraph graph, TransportSet transports) {
+            RoutingGraph old = tree.graph;
+            if(!graph.sameTopology(old) || graph.getShift(tree.criterion) != shift) return false;
+
+            MinimumWeights minimum = graph.getMinimumWeights(tree.criterion, transports);
+            MinimumWeights oldMinimum = old.getMinimumWeights(tree.criterion, transports);
+            for(int e = 0; e < graph.numEdges(); e++) {
+                // Only the cheapest transport of each route matters to the tree
+                if(minimum.bestTransports[e] == oldMinimum.bestTransports[e]
+                        && Float.compare(minimum.values[e], oldMinimum.values[e]) == 0) continue;
+                if(usedEdges.get(e)) return false;
+
+                int u = graph.edgeSource[e];
+                int v = graph.edgeTarget[e];
+                float cheapest = minimum.bestTransports[e] < 0 ? Float.POSITIVE_INFINITY : minimum.values[e] + shift;
+                if(distances[u] + cheapest < distances[v] || distances[v] + cheapest < distances[u]) return false;
+            }
+
+            return true;
+        }
+
+        /**
+         * Moves the tree to a new graph with the same routes
+         */
+        private void rebind(RoutingGraph graph) {
+            tree = new ShortestPathTree(graph, tree.criterion, tree.source, tree.costs, tree.predEdges,
+                    tree.predTransports, tree.scannedStops);
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package pt.pa.strategy;
 
+import pt.pa.model.Criterion;
 import pt.pa.model.Route;
 import pt.pa.model.Stop;
 import pt.pa.model.Transport;
+import pt.pa.model.TransportSet;
 import pt.pa.model.TransportsMap;
+import pt.pa.routing.SearchMode;
+import pt.pa.routing.ShortestPathTree;
 
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -18,13 +21,45 @@ import java.util.Map;
  * [PL2 - Prof. André Sanguinetti]
  */
 public class DistanceRouteStrategy implements RouteStrategy{
+    private final SearchMode searchMode;
+
+    /**
+     * DistanceRouteStrategy constructor, using Dijkstra for point-to-point routes
+     */
+    public DistanceRouteStrategy() {
+        this(SearchMode.DIJKSTRA);
+    }
+
+    /**
+     * DistanceRouteStrategy constructor
+     * @param searchMode Algorithm used for point-to-point routes
+     */
+    public DistanceRouteStrategy(SearchMode searchMode) {
+        this.searchMode = searchMode;
+    }
+
+    @Override
+    public Map<Stop, TransportsMap.RouteInfo> calculateRoute(TransportsMap map, Stop start, TransportSet transports) {
+        return map.Dijkstra(start, transports, Criterion.DISTANCE);
+    }
+
     @Override
-    public Map<Stop, TransportsMap.RouteInfo> calculateRoute(TransportsMap map, Stop start, List<Transport> transports) {
-        return map.BellmanFord(start, transports, "Distância");
+    public ShortestPathTree searchRoute(TransportsMap map, Stop start, Stop end, TransportSet transports) {
+        return map.searchRoute(start, end, transports, Criterion.DISTANCE, searchMode);
     }
 
     @Override
     public Float getValueByCriterion(Route route, Transport transport) {
-        return route.getDistances().get(transport);
+        return Criterion.DISTANCE.getValue(route, transport);
+    }
+
+    @Override
+    public Criterion getCriterion() {
+        return Criterion.DISTANCE;
+    }
+
+    @Override
+    public SearchMode getSearchMode() {
+        return searchMode;
     }
 }
@@ -1,11 +1,14 @@
 package pt.pa.strategy;
 
+import pt.pa.model.Criterion;
 import pt.pa.model.Route;
 import pt.pa.model.Stop;
 import pt.pa.model.Transport;
+import pt.pa.model.TransportSet;
 import pt.pa.model.TransportsMap;
+import pt.pa.routing.SearchMode;
+import pt.pa.routing.ShortestPathTree;
 
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -18,13 +21,45 @@ import java.util.Map;
  * [PL2 - Prof. André Sanguinetti]
  */
 public class DurationRouteStrategy implements RouteStrategy{
+    private final SearchMode searchMode;
+
+    /**
+     * DurationRouteStrategy constructor, using Dijkstra for point-to-point routes
+     */
+    public DurationRouteStrategy() {
+        this(SearchMode.DIJKSTRA);
+    }
+
+    /**
+     * DurationRouteStrategy constructor
+     * @param searchMode Algorithm used for point-to-point routes
+     */
+    public DurationRouteStrategy(SearchMode searchMode) {
+        this.searchMode = searchMode;
+    }
+
+    @Override
+    public Map<Stop, TransportsMap.RouteInfo> calculateRoute(TransportsMap map, Stop start, TransportSet transports) {
+        return map.Dijkstra(start, transports, Criterion.DURATION);
+    }
+
     @Override
-    public Map<Stop, TransportsMap.RouteInfo> calculateRoute(TransportsMap map, Stop start, List<Transport> transports) {
-        return map.BellmanFord(start, transports, "Duração");
+    public ShortestPathTree searchRoute(TransportsMap map, Stop start, Stop end, TransportSet transports) {
+        return map.searchRoute(start, end, transports, Criterion.DURATION, searchMode);
     }
 
     @Override
     public Float getValueByCriterion(Route route, Transport transport) {
-        return route.getDurations().get(transport) == null ? null : route.getDurations().get(transport).floatValue();
+        return Criterion.DURATION.getValue(route, transport);
+    }
+
+    @Override
+    public Criterion getCriterion() {
+        return Criterion.DURATION;
+    }
+
+    @Override
+    public SearchMode getSearchMode() {
+        return searchMode;
     }
 }
@@ -1,11 +1,14 @@
 package pt.pa.strategy;
 
+import pt.pa.model.Criterion;
 import pt.pa.model.Route;
 import pt.pa.model.Stop;
 import pt.pa.model.Transport;
+import pt.pa.model.TransportSet;
 import pt.pa.model.TransportsMap;
+import pt.pa.routing.SearchMode;
+import pt.pa.routing.ShortestPathTree;
 
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -22,10 +25,20 @@ public interface RouteStrategy {
      * Calculates a route
      * @param map TransportsMap object
      * @param start Start stop
-     * @param transports List of transports
+     * @param transports Set of transports
      * @return HashMap containing the possible route for the stop
      */
-    Map<Stop, TransportsMap.RouteInfo> calculateRoute(TransportsMap map, Stop start, List<Transport> transports);
+    Map<Stop, TransportsMap.RouteInfo> calculateRoute(TransportsMap map, Stop start, TransportSet transports);
+
+    /**
+     * Searches for a route between two stops, stopping the search once the end stop is reached
+     * @param map TransportsMap object
+     * @param start Start stop
+     * @param end End stop
+     * @param transports Set of transports
+     * @return ShortestPathTree containing the route to the end stop
+     */
+    ShortestPathTree searchRoute(TransportsMap map, Stop start, Stop end, TransportSet transports);
 
     /**
      * Gets the value based on the strategy criterion
@@ -34,4 +47,16 @@ public interface RouteStrategy {
      * @return Float value
      */
     Float getValueByCriterion(Route route, Transport transport);
+
+    /**
+     * Gets the criterion of the strategy
+     * @return Criterion object
+     */
+    Criterion getCriterion();
+
+    /**
+     * Gets the algorithm used for point-to-point routes
+     * @return SearchMode object
+     */
+    SearchMode getSearchMode();
 }
@@ -1,15 +1,21 @@
 package pt.pa.strategy;
 
+import pt.pa.model.Criterion;
 import pt.pa.model.Route;
 import pt.pa.model.Stop;
 import pt.pa.model.Transport;
+import pt.pa.model.TransportSet;
 import pt.pa.model.TransportsMap;
+import pt.pa.routing.SearchMode;
+import pt.pa.routing.ShortestPathTree;
 
-import java.util.List;
 import java.util.Map;
 
 /**
- * Concrete strategy for sustainability routes
+ * Concrete strategy for sustainability routes.
+ * Some routes have negative sustainability, so every route is shifted by RoutingGraph.getShift before
+ * searching. The route found minimises sustainability + shift * number of routes, which favours paths
+ * with fewer routes over the path with the lowest sustainability alone
  *
  * @author Rodrigo Santos - 202100722,
  * João Fernandes - 202100718,
@@ -18,13 +24,45 @@ import java.util.Map;
  * [PL2 - Prof. André Sanguinetti]
  */
 public class SustainabilityRouteStrategy implements RouteStrategy{
+    private final SearchMode searchMode;
+
+    /**
+     * SustainabilityRouteStrategy constructor, using Dijkstra for point-to-point routes
+     */
+    public SustainabilityRouteStrategy() {
+        this(SearchMode.DIJKSTRA);
+    }
+
+    /**
+     * SustainabilityRouteStrategy constructor
+     * @param searchMode Algorithm used for point-to-point routes
+     */
+    public SustainabilityRouteStrategy(SearchMode searchMode) {
+        this.searchMode = searchMode;
+    }
+
+    @Override
+    public Map<Stop, TransportsMap.RouteInfo> calculateRoute(TransportsMap map, Stop start, TransportSet transports) {
+        return map.Dijkstra(start, transports, Criterion.SUSTAINABILITY);
+    }
+
     @Override
-    public Map<Stop, TransportsMap.RouteInfo> calculateRoute(TransportsMap map, Stop start, List<Transport> transports) {
-        return map.BellmanFord(start, transports, "Sustentabilidade");
+    public ShortestPathTree searchRoute(TransportsMap map, Stop start, Stop end, TransportSet transports) {
+        return map.searchRoute(start, end, transports, Criterion.SUSTAINABILITY, searchMode);
     }
 
     @Override
     public Float getValueByCriterion(Route route, Transport transport) {
-        return route.getCosts().get(transport) == null ? null : route.getCosts().get(transport).floatValue();
+        return Criterion.SUSTAINABILITY.getValue(route, transport);
+    }
+
+    @Override
+    public Criterion getCriterion() {
+        return Criterion.SUSTAINABILITY;
+    }
+
+    @Override
+    public SearchMode getSearchMode() {
+        return searchMode;
     }
 }
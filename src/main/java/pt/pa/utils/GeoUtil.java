@@ -0,0 +1,35 @@
+package pt.pa.utils;
+
+/**
+ * Utility class for geographic calculations
+ * @author Rodrigo Santos - 202100722,
+ * João Fernandes - 202100718,
+ * Rúben Dâmaso - 202100723
+ *
+ * [PL2 - Prof. André Sanguinetti]
+ */
+public class GeoUtil {
+    /**
+     * Mean radius of the Earth in kilometers
+     */
+    public static final double EARTH_RADIUS_KM = 6371.0;
+
+    /**
+     * Returns the great-circle distance between two points (haversine formula)
+     * @param latitude1 Latitude of the first point, in degrees
+     * @param longitude1 Longitude of the first point, in degrees
+     * @param latitude2 Latitude of the second point, in degrees
+     * @param longitude2 Longitude of the second point, in degrees
+     * @return Distance in kilometers
+     */
+    public static double greatCircleDistance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dLatitude = Math.toRadians(latitude2 - latitude1);
+        double dLongitude = Math.toRadians(longitude2 - longitude1);
+
+        double a = Math.sin(dLatitude / 2) * Math.sin(dLatitude / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(dLongitude / 2) * Math.sin(dLongitude / 2);
+
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -14,12 +14,12 @@ import javafx.stage.Modality;
 import pt.pa.model.Route;
 import pt.pa.model.Stop;
 import pt.pa.model.Transport;
+import pt.pa.model.TransportSet;
 
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Utility class to create UI components
@@ -33,6 +33,13 @@ public class UIUtil {
     private static final String LOGO_IMAGE_PATH = "/images/sit_logo.png";
     private static final String UI_STYLE_PATH = "/styles/ui.css";
 
+    /**
+     * Warning shown with the sustainability criterion. Some routes have negative sustainability, so the
+     * search adds the same value to every route and may prefer a path with fewer routes
+     */
+    public static final String SUSTAINABILITY_NOTE = "A rota privilegia menos percursos: pode existir uma rota com "
+            + "sustentabilidade mais baixa que passe por mais paragens.";
+
     /**
      * Creates the logo Image View
      * @return ImageView object containing the logo image
@@ -93,13 +100,14 @@ public class UIUtil {
         // Populate the columns
         int column = 1;
         for (Transport transport : Transport.values()) {
-            Float distanceValue = route.getDistances().get(transport);
-            Integer durationValue = route.getDurations().get(transport);
-            Float costValue = route.getCosts().get(transport);
-
-            Label distance = UIUtil.createStyledLabel(distanceValue != null ? distanceValue.toString() : "N/A", 4);
-            Label duration = UIUtil.createStyledLabel(durationValue != null ? durationValue.toString() : "N/A", 4);
-            Label cost = UIUtil.createStyledLabel(costValue != null ? costValue.toString() : "N/A", 4);
+            // Read straight from the route, without copying its values into maps
+            float distanceValue = route.getDistance(transport);
+            float durationValue = route.getDuration(transport);
+            float costValue = route.getCost(transport);
+
+            Label distance = UIUtil.createStyledLabel(!Float.isNaN(distanceValue) ? Float.toString(distanceValue) : "N/A", 4);
+            Label duration = UIUtil.createStyledLabel(!Float.isNaN(durationValue) ? Integer.toString((int) durationValue) : "N/A", 4);
+            Label cost = UIUtil.createStyledLabel(!Float.isNaN(costValue) ? Float.toString(costValue) : "N/A", 4);
             Label icon = UIUtil.createStyledLabel(transport.toEmoji(), 5);
 
             table.add(icon, column, 0);
@@ -183,7 +191,7 @@ public class UIUtil {
      * @param transports Stop transports
      * @return Alert with the stop details
      */
-    public static Alert createStopInfoPopup(Stop stop, List<Vertex<Stop>> connections, Set<Transport> transports) {
+    public static Alert createStopInfoPopup(Stop stop, List<Vertex<Stop>> connections, TransportSet transports) {
         // Alert object
         Alert alert = new Alert(Alert.AlertType.NONE);
         alert.setTitle("Informação Paragem");
@@ -370,6 +378,7 @@ public class UIUtil {
         rbCriterioDistancia.setToggleGroup(criterioGroup);
         RadioButton rbCriterioSustentabilidade = new RadioButton("Sustentabilidade");
         rbCriterioSustentabilidade.setToggleGroup(criterioGroup);
+        rbCriterioSustentabilidade.setTooltip(new Tooltip(SUSTAINABILITY_NOTE));
         RadioButton rbCriterioDuracao = new RadioButton("Duração");
         rbCriterioDuracao.setToggleGroup(criterioGroup);
 
@@ -3,6 +3,7 @@ package pt.pa.view;
 import com.brunomnsilva.smartgraph.graph.Edge;
 import com.brunomnsilva.smartgraph.graph.Vertex;
 import com.brunomnsilva.smartgraph.graphview.*;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -39,6 +40,9 @@ import java.util.*;
  * [PL2 - Prof. André Sanguinetti]
  */
 public class MapView extends BorderPane implements MapViewUI {
+    // Maximum number of stop names suggested while typing
+    private static final int STOP_SUGGESTIONS = 50;
+
     // Attributes
     private SmartGraphPanel<Stop, Route> graphView;
     private TransportsMap graph;
@@ -307,12 +311,10 @@ public class MapView extends BorderPane implements MapViewUI {
     private void renderStartTrip() {
         resetSideMenu("Iniciar Viagem");
 
-        cbTripStart = new ComboBox<>();
-        cbTripStart.getItems().addAll(controller.doGetStopNames());
+        cbTripStart = createStopSearchBox();
         HBox hbOrigem = UIUtil.createField("Origem", cbTripStart);
 
-        cbTripEnd = new ComboBox<>();
-        cbTripEnd.getItems().addAll(controller.doGetStopNames());
+        cbTripEnd = createStopSearchBox();
         HBox hbDestino = UIUtil.createField("Destino", cbTripEnd);
 
         vbTripTransports = UIUtil.createTransportGroup();
@@ -334,6 +336,28 @@ public class MapView extends BorderPane implements MapViewUI {
         );
     }
 
+    /**
+     * Creates an editable ComboBox that suggests the stop names matching the typed text
+     * @return ComboBox object
+     */
+    private ComboBox<String> createStopSearchBox() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        comboBox.setEditable(true);
+        comboBox.getItems().setAll(controller.doFindStopNames("", STOP_SUGGESTIONS));
+
+        comboBox.getEditor().textProperty().addListener((observable, oldText, text) -> {
+            // Picking a suggestion also changes the text, and the list can't change during the selection
+            if(text == null || text.equals(comboBox.getValue())) return;
+
+            Platform.runLater(() -> {
+                comboBox.getItems().setAll(controller.doFindStopNames(text, STOP_SUGGESTIONS));
+                if(comboBox.getEditor().isFocused() && !comboBox.getItems().isEmpty()) comboBox.show();
+            });
+        });
+
+        return comboBox;
+    }
+
     /**
      *
      * Renders the custom trip view
@@ -375,7 +399,8 @@ public class MapView extends BorderPane implements MapViewUI {
                     custo.setText("Distância: " + custoTotal + " km");
                     break;
                 case "Sustentabilidade":
-                    custo.setText("Sustentabilidade: " + custoTotal);
+                    custo.setText("Sustentabilidade: " + custoTotal + "\n" + UIUtil.SUSTAINABILITY_NOTE);
+                    custo.setWrapText(true);
                     break;
                 case "Duração":
                     custo.setText("Duração: " + custoTotal + " minutos");
@@ -482,10 +507,9 @@ public class MapView extends BorderPane implements MapViewUI {
         VBox tableContainer = new VBox();
         tableContainer.getChildren().add(UIUtil.buildTransportTable(route)); // Add the initial table
 
+        float bicycleDuration = route.getDuration(Transport.BICYCLE);
         Label bicycleDurationLabel = UIUtil.createStyledLabel(
-                route.getDurations().get(Transport.BICYCLE) != null
-                        ? route.getDurations().get(Transport.BICYCLE).toString()
-                        : "N/A",
+                !Float.isNaN(bicycleDuration) ? Integer.toString((int) bicycleDuration) : "N/A",
                 4
         );
 
@@ -532,8 +556,8 @@ public class MapView extends BorderPane implements MapViewUI {
         undoButton.setOnAction(event -> {
             controller.doUndoBicycleDuration(route);
 
-            Integer originalDuration = route.getDurations().get(Transport.BICYCLE);
-            bicycleDurationLabel.setText(originalDuration != null ? originalDuration.toString() : "N/A");
+            float originalDuration = route.getDuration(Transport.BICYCLE);
+            bicycleDurationLabel.setText(!Float.isNaN(originalDuration) ? Integer.toString((int) originalDuration) : "N/A");
 
             // Refresh the table
             VBox updatedTableContainer = new VBox();
@@ -683,9 +707,7 @@ public class MapView extends BorderPane implements MapViewUI {
         btnCalculateCustomTrip.setOnAction((ActionEvent event) -> {
             resetEdgeStyles();
 
-            List<RouteInfo> routeInfos = controller.doCalculateCustomRoute();
-
-            if (routeInfos != null) renderTripResults(routeInfos);
+            controller.doCalculateCustomRoute(this::renderTripResults);
         });
     }
 
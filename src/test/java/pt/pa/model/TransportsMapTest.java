@@ -7,11 +7,29 @@ import com.brunomnsilva.smartgraph.graph.InvalidVertexException;
 import com.brunomnsilva.smartgraph.graph.Vertex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import pt.pa.routing.BellmanFord;
+import pt.pa.routing.ContractionHierarchy;
+import pt.pa.routing.CustomizableRoutePlanner;
+import pt.pa.routing.DeltaStepping;
+import pt.pa.routing.Dijkstra;
+import pt.pa.routing.Landmarks;
+import pt.pa.routing.RouteMatrix;
+import pt.pa.routing.RouteQueryCache;
+import pt.pa.routing.RoutingGraph;
+import pt.pa.routing.SearchMode;
+import pt.pa.routing.ShortestPathTree;
+import pt.pa.routing.ShortestPathTreeCache;
 import pt.pa.strategy.DistanceRouteStrategy;
 import pt.pa.strategy.DurationRouteStrategy;
+import pt.pa.strategy.RouteStrategy;
 import pt.pa.strategy.SustainabilityRouteStrategy;
+import pt.pa.utils.GeoUtil;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -205,6 +223,131 @@ class TransportsMapTest {
         assertNull(graph.getStopByCode("ABC"), "Should return null for non-existent code");
     }
 
+    /**
+     * Tests that the stop lookups follow insertions, replacements and removals
+     */
+    @Test
+    void testStopLookupsFollowChanges() {
+        Vertex<Stop> s1 = graph.insertVertex(new Stop("S001", "Stop1", 4.0f, -80.5f));
+        Vertex<Stop> s2 = graph.insertVertex(new Stop("S002", "Stop1", 4.0f, -80.5f));
+        Stop oldStop = s1.element();
+
+        assertEquals(s1, graph.getVertexByStop(oldStop));
+        assertEquals(oldStop, graph.getStopByName("Stop1"));
+
+        Stop newStop = new Stop("S003", "Stop3", 4.0f, -80.5f);
+        graph.replace(s1, newStop);
+        assertNull(graph.getVertexByStop(oldStop));
+        assertNull(graph.getStopByCode("S001"));
+        assertEquals(s1, graph.getVertexByStop(newStop));
+        assertEquals(newStop, graph.getStopByCode("S003"));
+        assertEquals(s2.element(), graph.getStopByName("Stop1"), "The other stop with the same name should be found");
+
+        Vertex<Stop> s4 = graph.insertVertex(new Stop("S004", "Stop1", 4.0f, -80.5f));
+        Vertex<Stop> s5 = graph.insertVertex(new Stop("S005", "Stop1", 4.0f, -80.5f));
+        graph.removeVertex(s2);
+        assertEquals(s4.element(), graph.getStopByName("Stop1"), "The next stop indexed with the name should be found");
+        graph.removeVertex(s4);
+        graph.removeVertex(s5);
+        assertNull(graph.getStopByName("Stop1"));
+        assertNull(graph.getStopByCode("S002"));
+        assertNull(graph.getVertexByStop(null));
+    }
+
+    /**
+     * Tests the stop name suggestions
+     */
+    @Test
+    void testFindStopNames() {
+        graph.insertVertex(new Stop("S001", "Sé", 4.0f, -80.5f));
+        graph.insertVertex(new Stop("S002", "Avenida dos Aliados", 4.0f, -80.5f));
+        Vertex<Stop> s3 = graph.insertVertex(new Stop("S003", "Senhora da Hora", 4.0f, -80.5f));
+        graph.insertVertex(new Stop("S004", "Campo Alegre", 4.0f, -80.5f));
+
+        assertEquals(List.of("Sé", "Senhora da Hora"), graph.findStopNames("se", 10));
+        assertEquals(List.of("Sé"), graph.findStopNames("SÉ", 1));
+        assertEquals(List.of("Avenida dos Aliados", "Campo Alegre"), graph.findStopNames("a", 10),
+                "Names starting with the text should come before names with a word starting with it");
+        assertEquals(List.of("Avenida dos Aliados"), graph.findStopNames("aliados", 10));
+        assertTrue(graph.findStopNames("x", 10).isEmpty());
+
+        graph.removeVertex(s3);
+        assertEquals(List.of("Sé"), graph.findStopNames("se", 10));
+    }
+
+    /**
+     * Tests the nearest stops and the stops within a distance against every stop
+     */
+    @Test
+    void testFindStopsNearPoint() {
+        Random random = new Random(7);
+        List<Vertex<Stop>> vertices = new ArrayList<>();
+        for(int i = 0; i < 2000; i++) {
+            float latitude = 38.5f + random.nextFloat();
+            float longitude = -9.5f + random.nextFloat();
+            vertices.add(graph.insertVertex(new Stop("S" + i, "Stop" + i, latitude, longitude)));
+        }
+        for(int i = 0; i < 500; i++) {
+            graph.removeVertex(vertices.get(i));
+        }
+
+        for(int q = 0; q < 20; q++) {
+            double latitude = 38.4 + random.nextDouble() * 1.2;
+            double longitude = -9.6 + random.nextDouble() * 1.2;
+            List<Stop> expected = new ArrayList<>();
+            for(Vertex<Stop> v : graph.vertices()) {
+                expected.add(v.element());
+            }
+            expected.sort(Comparator.comparingDouble(stop -> GeoUtil.greatCircleDistance(latitude, longitude, stop.getLatitude(), stop.getLongitude())));
+
+            assertEquals(expected.subList(0, 5), graph.findNearestStops(latitude, longitude, 5));
+
+            List<Stop> within = graph.findStopsWithin(latitude, longitude, 3);
+            long count = expected.stream()
+                    .filter(stop -> GeoUtil.greatCircleDistance(latitude, longitude, stop.getLatitude(), stop.getLongitude()) <= 3)
+                    .count();
+            assertEquals(count, within.size());
+            assertEquals(expected.subList(0, within.size()), within);
+        }
+    }
+
+    /**
+     * Tests that the transports of a stop follow the changes to its routes
+     */
+    @Test
+    void testStopTransportsFollowRouteChanges() {
+        Vertex<Stop> s1 = graph.insertVertex(new Stop("S001", "Stop1", 2.0f, -2.5f));
+        Vertex<Stop> s2 = graph.insertVertex(new Stop("S002", "Stop2", 3.0f, -5.5f));
+        Vertex<Stop> s3 = graph.insertVertex(new Stop("S003", "Stop3", 4.0f, -80.5f));
+
+        HashMap<Transport, Float> busDistances = new HashMap<>();
+        busDistances.put(Transport.BUS, 1.0f);
+        Route all = new Route("S001", "S002", distances, durations, costs);
+        Route bus = new Route("S002", "S003", busDistances, new HashMap<>(), new HashMap<>());
+        graph.insertEdge(s1, s2, all);
+        Edge<Route, Stop> busEdge = graph.insertEdge(s2, s3, bus);
+
+        assertEquals(TransportSet.all(), graph.getStopTransports("S002"));
+        assertEquals(TransportSet.of(Transport.BUS), graph.getStopTransports("S003"));
+
+        all.disableTransport(Transport.TRAIN);
+        assertFalse(graph.getStopTransports("S001").contains(Transport.TRAIN));
+
+        graph.toggleRouteStatus(all);
+        assertTrue(graph.getStopTransports("S001").isEmpty(), "Inactive routes don't serve their stops");
+        assertEquals(TransportSet.of(Transport.BUS), graph.getStopTransports("S002"));
+
+        graph.toggleRouteStatus(all);
+        all.enableTransport(Transport.TRAIN, 1.0f, 1, 1.0f);
+        assertEquals(TransportSet.all(), graph.getStopTransports("S001"));
+
+        graph.removeEdge(busEdge);
+        assertTrue(graph.getStopTransports("S003").isEmpty());
+        graph.removeVertex(s1);
+        assertTrue(graph.getStopTransports("S002").isEmpty());
+        assertTrue(graph.getStopTransports("ABC").isEmpty());
+    }
+
     /**
      * Tests the error when inserting a duplicate vertex
      */
@@ -249,6 +392,32 @@ class TransportsMapTest {
         assertEquals(1, centralityMap.get("Stop2"));
     }
 
+    @Test
+    void testCentralityFollowsRouteChanges() {
+        Vertex<Stop> s1 = graph.insertVertex(new Stop("S001", "Stop1", 2.0f, -2.5f));
+        Vertex<Stop> s2 = graph.insertVertex(new Stop("S002", "Stop2", 3.0f, -5.5f));
+        Vertex<Stop> s3 = graph.insertVertex(new Stop("S003", "Stop3", 4.0f, -80.5f));
+        Route first = new Route("S001", "S002", distances, durations, costs);
+        Route second = new Route("S002", "S003", distances, durations, costs);
+        graph.insertEdge(s1, s2, first);
+        Edge<Route, Stop> secondEdge = graph.insertEdge(s2, s3, second);
+
+        assertEquals(List.of("Stop2", "Stop1", "Stop3"), new ArrayList<>(graph.stopsCentrality().keySet()));
+        assertEquals(List.of(Map.entry("Stop2", 2), Map.entry("Stop1", 1)), graph.topCentralStops(2));
+
+        graph.toggleRouteStatus(first);
+        assertEquals(0, graph.stopsCentrality().get("Stop1"), "Inactive routes don't count");
+        assertEquals(1, graph.stopsCentrality().get("Stop2"));
+        assertEquals(1, graph.topCentralStops(1).get(0).getValue());
+
+        graph.toggleRouteStatus(first);
+        graph.removeEdge(secondEdge);
+        assertEquals(0, graph.stopsCentrality().get("Stop3"));
+        graph.removeVertex(s1);
+        assertEquals(Map.of("Stop2", 0, "Stop3", 0), graph.stopsCentrality());
+        assertEquals(2, graph.topCentralStops(5).size());
+    }
+
     @Test
      void testGetAdjacentVertices(){
         Vertex<Stop> s1 = graph.insertVertex(new Stop("S001", "Stop1", 2.0f, -2.5f));
@@ -275,6 +444,28 @@ class TransportsMapTest {
         assertEquals(1, graph.numEdgesWithTransport(Transport.BICYCLE));
     }
 
+    @Test
+    void testIncidentEdgesFollowRemovals(){
+        Vertex<Stop> s1 = graph.insertVertex(new Stop("S001", "Stop1", 2.0f, -2.5f));
+        Vertex<Stop> s2 = graph.insertVertex(new Stop("S002", "Stop2", 3.0f, -5.5f));
+        Vertex<Stop> s3 = graph.insertVertex(new Stop("S003", "Stop3", 4.0f, -6.5f));
+        Edge<Route, Stop> e12 = graph.insertEdge(s1, s2, new Route("S001", "S002", distances, durations, costs));
+        graph.insertEdge(s1, s3, new Route("S001", "S003", distances, durations, costs));
+
+        assertEquals(2, graph.incidentEdges(s1).size());
+        assertEquals(1, graph.incidentEdges(s2).size());
+
+        graph.removeEdge(e12);
+
+        assertEquals(1, graph.incidentEdges(s1).size());
+        assertTrue(graph.incidentEdges(s2).isEmpty());
+
+        graph.removeVertex(s3);
+
+        assertTrue(graph.incidentEdges(s1).isEmpty());
+        assertEquals(0, graph.numEdges());
+    }
+
     @Test
      void testGetVertexByStop(){
         Stop stop = new Stop("S001", "Stop1", 2.0f, -2.5f);
@@ -397,6 +588,639 @@ class TransportsMapTest {
         assertEquals(0, count);
     }
 
+    @Test
+    void testRoutingGraphFollowsRouteChanges(){
+        graph.setRouteStrategy(new DistanceRouteStrategy());
+
+        Vertex<Stop> s1 = graph.insertVertex(new Stop("S001", "Stop1", 2.0f, -2.5f));
+        Vertex<Stop> s2 = graph.insertVertex(new Stop("S002", "Stop2", 3.0f, -5.5f));
+        Route route = new Route("S001", "S002", new HashMap<>(distances), new HashMap<>(durations), new HashMap<>(costs));
+        graph.insertEdge(s1, s2, route);
+
+        List<Transport> transports = List.of(Transport.BUS);
+
+        assertNotNull(graph.calculateRoute(s1.element(), transports).get(s2.element()).cameFrom());
+
+        graph.toggleRouteStatus(route);
+        assertNull(graph.calculateRoute(s1.element(), transports).get(s2.element()).cameFrom());
+
+        graph.toggleRouteStatus(route);
+        route.disableTransport(Transport.BUS);
+        assertNull(graph.calculateRoute(s1.element(), transports).get(s2.element()).cameFrom());
+
+        route.enableTransport(Transport.BUS, 1.0f, 1, 1.0f);
+        assertNotNull(graph.calculateRoute(s1.element(), transports).get(s2.element()).cameFrom());
+    }
+
+    @Test
+    void testDijkstraReturnsExactCosts(){
+        Vertex<Stop> s1 = graph.insertVertex(new Stop("S001", "Stop1", 2.0f, -2.5f));
+        Vertex<Stop> s2 = graph.insertVertex(new Stop("S002", "Stop2", 3.0f, -5.5f));
+        Vertex<Stop> s3 = graph.insertVertex(new Stop("S003", "Stop3", 4.0f, -6.5f));
+
+        HashMap<Transport, Float> negativeCosts = new HashMap<>(costs);
+        negativeCosts.put(Transport.BICYCLE, -0.5f);
+
+        graph.insertEdge(s1, s2, new Route("S001", "S002", distances, durations, negativeCosts));
+        graph.insertEdge(s2, s3, new Route("S002", "S003", distances, durations, costs));
+
+        List<Transport> transports = new ArrayList<>(Arrays.stream(Transport.values()).toList());
+
+        Map<Stop, TransportsMap.RouteInfo> byDistance = graph.Dijkstra(s1.element(), transports, Criterion.DISTANCE);
+        assertEquals(2.0f, byDistance.get(s3.element()).costToArrive(), 0.0001f);
+        assertEquals(s2.element(), byDistance.get(s3.element()).cameFrom());
+
+        Map<Stop, TransportsMap.RouteInfo> bySustainability = graph.Dijkstra(s1.element(), transports, Criterion.SUSTAINABILITY);
+        assertEquals(-0.5f, bySustainability.get(s2.element()).costToArrive(), 0.0001f);
+        assertEquals(Transport.BICYCLE, bySustainability.get(s2.element()).transportTaken());
+        assertEquals(0.5f, bySustainability.get(s3.element()).costToArrive(), 0.0001f);
+    }
+
+    @Test
+    void testCalculateRouteBetweenStops(){
+        graph.setRouteStrategy(new DurationRouteStrategy());
+
+        Vertex<Stop> s1 = graph.insertVertex(new Stop("S001", "Stop1", 2.0f, -2.5f));
+        Vertex<Stop> s2 = graph.insertVertex(new Stop("S002", "Stop2", 3.0f, -5.5f));
+        Vertex<Stop> s3 = graph.insertVertex(new Stop("S003", "Stop3", 4.0f, -6.5f));
+        Vertex<Stop> s4 = graph.insertVertex(new Stop("S004", "Stop4", 5.0f, -7.5f));
+        graph.insertEdge(s1, s2, new Route("S001", "S002", distances, durations, costs));
+        graph.insertEdge(s2, s3, new Route("S002", "S003", distances, durations, costs));
+
+        List<Transport> transports = new ArrayList<>(Arrays.stream(Transport.values()).toList());
+
+        List<TransportsMap.RouteInfo> path = graph.calculateRoute(s1.element(), s3.element(), transports);
+
+        assertEquals(2, path.size());
+        assertEquals(s1.element(), path.get(0).cameFrom());
+        assertEquals(s3.element(), path.get(1).arrivedAt());
+        assertEquals(2.0f, path.get(1).costToArrive(), 0.0001f);
+
+        assertTrue(graph.calculateRoute(s1.element(), s4.element(), transports).isEmpty());
+    }
+
+    @Test
+    void testAStarMatchesDijkstra(){
+        Vertex<Stop> s1 = graph.insertVertex(new Stop("S001", "Stop1", 38.70f, -9.40f));
+        Vertex<Stop> s2 = graph.insertVertex(new Stop("S002", "Stop2", 38.70f, -9.30f));
+        Vertex<Stop> s3 = graph.insertVertex(new Stop("S003", "Stop3", 38.70f, -9.20f));
+        Vertex<Stop> s4 = graph.insertVertex(new Stop("S004", "Stop4", 38.70f, -9.50f));
+
+        HashMap<Transport, Float> tenKm = new HashMap<>();
+        for(Transport transport : Transport.values()) tenKm.put(transport, 10.0f);
+
+        graph.insertEdge(s1, s2, new Route("S001", "S002", tenKm, durations, costs));
+        graph.insertEdge(s2, s3, new Route("S002", "S003", tenKm, durations, costs));
+        graph.insertEdge(s1, s4, new Route("S001", "S004", tenKm, durations, costs));
+
+        List<Transport> transports = new ArrayList<>(Arrays.stream(Transport.values()).toList());
+
+        ShortestPathTree dijkstra = graph.searchRoute(s1.element(), s3.element(), transports, Criterion.DISTANCE, SearchMode.DIJKSTRA);
+        ShortestPathTree aStar = graph.searchRoute(s1.element(), s3.element(), transports, Criterion.DISTANCE, SearchMode.ASTAR);
+
+        assertEquals(dijkstra.pathTo(s3.element()), aStar.pathTo(s3.element()));
+        assertTrue(aStar.getScannedStops() < dijkstra.getScannedStops(), "A* should not explore the stop in the opposite direction");
+    }
+
+    @Test
+    void testBidirectionalHonoursRouteFilters(){
+        Vertex<Stop> s1 = graph.insertVertex(new Stop("S001", "Stop1", 2.0f, -2.5f));
+        Vertex<Stop> s2 = graph.insertVertex(new Stop("S002", "Stop2", 3.0f, -5.5f));
+        Vertex<Stop> s3 = graph.insertVertex(new Stop("S003", "Stop3", 4.0f, -6.5f));
+        Vertex<Stop> s4 = graph.insertVertex(new Stop("S004", "Stop4", 5.0f, -7.5f));
+
+        HashMap<Transport, Float> walkOnly = new HashMap<>();
+        walkOnly.put(Transport.WALK, 1.0f);
+
+        Route shortcut = new Route("S001", "S004", walkOnly, durations, costs);
+        graph.insertEdge(s1, s2, new Route("S001", "S002", distances, durations, costs));
+        graph.insertEdge(s2, s3, new Route("S002", "S003", distances, durations, costs));
+        graph.insertEdge(s3, s4, new Route("S003", "S004", distances, durations, costs));
+        graph.insertEdge(s1, s4, shortcut);
+
+        List<Transport> all = new ArrayList<>(Arrays.stream(Transport.values()).toList());
+        List<Transport> bus = List.of(Transport.BUS);
+
+        assertEquals(1, graph.searchRoute(s1.element(), s4.element(), all, Criterion.DISTANCE, SearchMode.BIDIRECTIONAL).pathTo(s4.element()).size());
+        assertEquals(3, graph.searchRoute(s1.element(), s4.element(), bus, Criterion.DISTANCE, SearchMode.BIDIRECTIONAL).pathTo(s4.element()).size());
+
+        graph.toggleRouteStatus(shortcut);
+
+        List<TransportsMap.RouteInfo> path = graph.searchRoute(s1.element(), s4.element(), all, Criterion.DISTANCE, SearchMode.BIDIRECTIONAL).pathTo(s4.element());
+        assertEquals(3, path.size());
+        assertEquals(3.0f, path.get(2).costToArrive(), 0.0001f);
+        assertEquals(graph.searchRoute(s1.element(), s4.element(), all, Criterion.DISTANCE, SearchMode.DIJKSTRA).pathTo(s4.element()), path);
+    }
+
+    @Test
+    void testContractionHierarchyMatchesDijkstra(){
+        List<Vertex<Stop>> vertices = new ArrayList<>();
+        for(int i = 0; i < 6; i++) {
+            vertices.add(graph.insertVertex(new Stop("S00" + i, "Stop" + i, i, -i)));
+        }
+
+        Route blocked = new Route("S001", "S004", distances, durations, costs);
+        for(int i = 0; i < 5; i++) {
+            graph.insertEdge(vertices.get(i), vertices.get(i + 1), new Route("S00" + i, "S00" + (i + 1), distances, durations, costs));
+        }
+        graph.insertEdge(vertices.get(1), vertices.get(4), blocked);
+        graph.toggleRouteStatus(blocked);
+
+        TransportSet all = TransportSet.all();
+        RoutingGraph routingGraph = graph.getRoutingGraph();
+
+        for(Criterion criterion : Criterion.values()) {
+            ContractionHierarchy hierarchy = ContractionHierarchy.build(routingGraph, criterion, all);
+            for(Vertex<Stop> start : vertices) {
+                for(Vertex<Stop> end : vertices) {
+                    int source = routingGraph.getId(start.element());
+                    int target = routingGraph.getId(end.element());
+                    assertEquals(Dijkstra.search(routingGraph, source, target, all, criterion).pathTo(target), hierarchy.search(source, target).pathTo(target));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testContractionHierarchiesFallBackToDijkstra(){
+        List<Vertex<Stop>> vertices = new ArrayList<>();
+        for(int i = 0; i < 36; i++) {
+            vertices.add(graph.insertVertex(new Stop("S0" + i, "Stop" + i, i / 6, i % 6)));
+        }
+        for(int i = 0; i < 36; i++) {
+            for(int next : new int[]{i + 1, i + 6}) {
+                if(next >= 36 || (next == i + 1 && next % 6 == 0)) continue;
+                graph.insertEdge(vertices.get(i), vertices.get(next), new Route("S0" + i, "S0" + next, distances, durations, costs));
+            }
+        }
+
+        // No hierarchy was built yet, so the first query is answered by the plain search (the overlay scans
+        // fewer stops on this grid)
+        TransportSet all = TransportSet.all();
+        Stop start = vertices.get(0).element();
+        Stop end = vertices.get(35).element();
+        ShortestPathTree fallback = graph.searchRoute(start, end, all, Criterion.DISTANCE, SearchMode.CONTRACTION_HIERARCHIES);
+        ShortestPathTree dijkstra = graph.searchRoute(start, end, all, Criterion.DISTANCE, SearchMode.DIJKSTRA);
+
+        assertEquals(dijkstra.pathTo(end), fallback.pathTo(end));
+        assertEquals(dijkstra.getScannedStops(), fallback.getScannedStops());
+    }
+
+    @Test
+    void testPointToPointSearchesKeepOnlyThePath(){
+        List<Vertex<Stop>> vertices = new ArrayList<>();
+        for(int i = 0; i < 25; i++) {
+            vertices.add(graph.insertVertex(new Stop("S0" + i, "Stop" + i, i / 5, i % 5)));
+        }
+        for(int i = 0; i < 25; i++) {
+            for(int next : new int[]{i + 1, i + 5}) {
+                if(next >= 25 || (next == i + 1 && next % 5 == 0)) continue;
+                graph.insertEdge(vertices.get(i), vertices.get(next), new Route("S0" + i, "S0" + next, distances, durations, costs));
+            }
+        }
+
+        TransportSet all = TransportSet.all();
+        Stop start = vertices.get(0).element();
+        RoutingGraph routingGraph = graph.getRoutingGraph();
+        ShortestPathTree full = Dijkstra.search(routingGraph, routingGraph.getId(start), all, Criterion.DISTANCE);
+        // Consecutive queries reuse the working arrays of the thread
+        for(int round = 0; round < 2; round++) {
+            for(SearchMode mode : SearchMode.values()) {
+                if(mode == SearchMode.BELLMAN_FORD) continue;
+
+                for(int j = 1; j < 25; j += 6) {
+                    Stop end = vertices.get(j).element();
+                    ShortestPathTree tree = graph.searchRoute(start, end, all, Criterion.DISTANCE, mode);
+                    int target = tree.getGraph().getId(end);
+
+                    assertEquals(full.getCost(target), tree.getCost(target), 0.0001f, mode.toString());
+                    assertEquals(full.pathTo(target).size(), tree.pathTo(end).size(), mode.toString());
+                    assertEquals(tree.pathTo(end).size() + 1, tree.toRouteInfoMap().size(), mode.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testOverlayCustomizesOnlyChangedCells(){
+        List<Vertex<Stop>> vertices = new ArrayList<>();
+        List<Route> chain = new ArrayList<>();
+        for(int i = 0; i < 9; i++) {
+            vertices.add(graph.insertVertex(new Stop("S00" + i, "Stop" + i, i, -i)));
+        }
+        for(int i = 0; i < 8; i++) {
+            Route route = new Route("S00" + i, "S00" + (i + 1), new HashMap<>(distances), new HashMap<>(durations), new HashMap<>(costs));
+            graph.insertEdge(vertices.get(i), vertices.get(i + 1), route);
+            chain.add(route);
+        }
+
+        TransportSet bus = TransportSet.of(Transport.BUS);
+        assertEquals(8, graph.searchRoute(vertices.get(0).element(), vertices.get(8).element(), bus, Criterion.DISTANCE, SearchMode.OVERLAY).pathTo(vertices.get(8).element()).size());
+
+        CustomizableRoutePlanner planner = new CustomizableRoutePlanner();
+        chain.get(4).disableTransport(Transport.BUS);
+        RoutingGraph disabled = graph.getRoutingGraph();
+        int first = disabled.getId(vertices.get(0).element());
+        int last = disabled.getId(vertices.get(8).element());
+        assertTrue(planner.search(disabled, first, last, bus, Criterion.DISTANCE).pathTo(last).isEmpty());
+
+        chain.get(4).enableTransport(Transport.BUS, 1.0f, 1, 1.0f);
+        RoutingGraph routingGraph = graph.getRoutingGraph();
+        assertTrue(planner.getMetric(routingGraph, bus, Criterion.DISTANCE).getCustomizedCells() <= 1);
+
+        for(Vertex<Stop> start : vertices) {
+            for(Vertex<Stop> end : vertices) {
+                int source = routingGraph.getId(start.element());
+                int target = routingGraph.getId(end.element());
+                assertEquals(Dijkstra.search(routingGraph, source, target, bus, Criterion.DISTANCE).pathTo(target),
+                        planner.search(routingGraph, source, target, bus, Criterion.DISTANCE).pathTo(target));
+            }
+        }
+    }
+
+    @Test
+    void testLandmarksFollowCriterionChanges(){
+        List<Vertex<Stop>> vertices = new ArrayList<>();
+        for(int i = 0; i < 6; i++) {
+            vertices.add(graph.insertVertex(new Stop("S00" + i, "Stop" + i, i, -i)));
+        }
+
+        Route bikeRoute = new Route("S000", "S005", new HashMap<>(distances), new HashMap<>(durations), new HashMap<>(costs));
+        for(int i = 0; i < 5; i++) {
+            graph.insertEdge(vertices.get(i), vertices.get(i + 1), new Route("S00" + i, "S00" + (i + 1), new HashMap<>(distances), new HashMap<>(durations), new HashMap<>(costs)));
+        }
+        graph.insertEdge(vertices.get(0), vertices.get(5), bikeRoute);
+
+        RoutingGraph before = graph.getRoutingGraph();
+        Landmarks distanceLandmarks = before.getLandmarks(Criterion.DISTANCE);
+        Landmarks durationLandmarks = before.getLandmarks(Criterion.DURATION);
+
+        bikeRoute.updateBicycleDuration(10);
+        RoutingGraph after = graph.getRoutingGraph();
+        assertNotSame(before, after);
+        assertSame(distanceLandmarks, after.getLandmarks(Criterion.DISTANCE));
+        assertNotSame(durationLandmarks, after.getLandmarks(Criterion.DURATION));
+
+        TransportSet bicycle = TransportSet.of(Transport.BICYCLE);
+        for(Vertex<Stop> start : vertices) {
+            for(Vertex<Stop> end : vertices) {
+                int source = after.getId(start.element());
+                int target = after.getId(end.element());
+                assertEquals(Dijkstra.search(after, source, target, bicycle, Criterion.DURATION).getCost(target),
+                        Dijkstra.searchALT(after, source, target, bicycle, Criterion.DURATION).getCost(target), 0.0001f);
+            }
+        }
+    }
+
+    @Test
+    void testRouteCacheFollowsNetworkVersion(){
+        Vertex<Stop> s1 = graph.insertVertex(new Stop("S001", "Stop1", 2.0f, -2.5f));
+        Vertex<Stop> s2 = graph.insertVertex(new Stop("S002", "Stop2", 3.0f, -5.5f));
+        Vertex<Stop> s3 = graph.insertVertex(new Stop("S003", "Stop3", 4.0f, -6.5f));
+        Route shortcut = new Route("S001", "S003", distances, durations, costs);
+        graph.insertEdge(s1, s2, new Route("S001", "S002", distances, durations, costs));
+        graph.insertEdge(s2, s3, new Route("S002", "S003", distances, durations, costs));
+        graph.insertEdge(s1, s3, shortcut);
+
+        List<Transport> transports = new ArrayList<>(Arrays.stream(Transport.values()).toList());
+        RouteQueryCache cache = graph.getRouteCache();
+
+        List<TransportsMap.RouteInfo> first = graph.calculateRoute(s1.element(), s3.element(), transports);
+        assertSame(first, graph.calculateRoute(s1.element(), s3.element(), transports));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        long version = graph.getNetworkVersion();
+        graph.toggleRouteStatus(shortcut);
+        assertTrue(graph.getNetworkVersion() > version);
+
+        assertEquals(2, graph.calculateRoute(s1.element(), s3.element(), transports).size());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        RouteQueryCache small = new RouteQueryCache(1);
+        small.put(0, RouteQueryCache.key(0, 1, Criterion.DISTANCE, TransportSet.of(transports), SearchMode.DIJKSTRA), first);
+        small.put(0, RouteQueryCache.key(0, 2, Criterion.DISTANCE, TransportSet.of(transports), SearchMode.DIJKSTRA), first);
+        assertEquals(1, small.size());
+        assertEquals(1, small.getEvictions());
+    }
+
+    @Test
+    void testRouteCacheIgnoresOlderVersions(){
+        Vertex<Stop> s1 = graph.insertVertex(new Stop("S001", "Stop1", 2.0f, -2.5f));
+        Vertex<Stop> s2 = graph.insertVertex(new Stop("S002", "Stop2", 3.0f, -5.5f));
+        graph.insertEdge(s1, s2, new Route("S001", "S002", distances, durations, costs));
+        List<TransportsMap.RouteInfo> route = graph.calculateRoute(s1.element(), s2.element(), TransportSet.all());
+
+        RouteQueryCache cache = new RouteQueryCache();
+        RouteQueryCache.Query query = RouteQueryCache.key(0, 1, Criterion.DISTANCE, TransportSet.all(), SearchMode.DIJKSTRA);
+        cache.put(2, query, route);
+
+        // The stop ids of an older snapshot may refer to other stops
+        assertNull(cache.get(1, query));
+        cache.put(1, query, List.of());
+        assertEquals(route, cache.get(2, query));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void testTreeCacheKeepsTreesOfUnrelatedRoutes(){
+        Vertex<Stop> s1 = graph.insertVertex(new Stop("S001", "Stop1", 2.0f, -2.5f));
+        Vertex<Stop> s2 = graph.insertVertex(new Stop("S002", "Stop2", 3.0f, -5.5f));
+        Vertex<Stop> s3 = graph.insertVertex(new Stop("S003", "Stop3", 4.0f, -6.5f));
+        Route treeRoute = new Route("S001", "S002", distances, durations, costs);
+        Route detour = new Route("S002", "S003", distances, durations, costs);
+        Route direct = new Route("S001", "S003", distances, durations, costs);
+        graph.insertEdge(s1, s2, treeRoute);
+        graph.insertEdge(s2, s3, detour);
+        graph.insertEdge(s1, s3, direct);
+
+        List<Transport> transports = new ArrayList<>(Arrays.stream(Transport.values()).toList());
+        ShortestPathTreeCache cache = graph.getTreeCache();
+        graph.Dijkstra(s1.element(), transports, Criterion.DISTANCE);
+
+        graph.toggleRouteStatus(detour);
+        assertEquals(1.0f, graph.Dijkstra(s1.element(), transports, Criterion.DISTANCE).get(s3.element()).costToArrive(), 0.0001f);
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getInvalidations());
+
+        graph.toggleRouteStatus(detour);
+        graph.toggleRouteStatus(direct);
+        assertEquals(2.0f, graph.Dijkstra(s1.element(), transports, Criterion.DISTANCE).get(s3.element()).costToArrive(), 0.0001f);
+        assertEquals(1, cache.getInvalidations());
+
+        graph.toggleRouteStatus(direct);
+        assertEquals(1.0f, graph.Dijkstra(s1.element(), transports, Criterion.DISTANCE).get(s3.element()).costToArrive(), 0.0001f);
+        assertEquals(2, cache.getInvalidations());
+    }
+
+    @Test
+    void testRouteKeepsTransportValues(){
+        HashMap<Transport, Float> walkDistances = new HashMap<>();
+        walkDistances.put(Transport.WALK, 2.5f);
+        HashMap<Transport, Integer> walkDurations = new HashMap<>();
+        walkDurations.put(Transport.WALK, 30);
+        walkDurations.put(Transport.BUS, null);
+
+        Route route = new Route("S001", "S002", walkDistances, walkDurations, new HashMap<>());
+        assertEquals(walkDistances, route.getDistances());
+        assertEquals(walkDurations, route.getDurations());
+        assertTrue(route.getCosts().isEmpty());
+        assertEquals(30.0f, route.getDuration(Transport.WALK), 0.0001f);
+        assertTrue(Float.isNaN(route.getDuration(Transport.BUS)));
+        assertTrue(route.hasDuration(Transport.BUS));
+
+        route.updateBicycleDuration(10);
+        assertFalse(route.getDurations().containsKey(Transport.BICYCLE));
+        assertFalse(route.hasDuration(Transport.BICYCLE));
+
+        route.getDistances().put(Transport.TRAIN, 1.0f);
+        assertNull(route.getDistances().get(Transport.TRAIN));
+
+        route.disableTransport(Transport.WALK);
+        assertTrue(route.getDistances().containsKey(Transport.WALK));
+        assertNull(route.getDistances().get(Transport.WALK));
+        assertTrue(Float.isNaN(route.getDistance(Transport.WALK)));
+        assertTrue(route.hasDuration(Transport.WALK));
+        assertNull(Criterion.DISTANCE.getValue(route, Transport.WALK));
+    }
+
+    @Test
+    void testTransportSetSkipsUnavailableTransports(){
+        assertSame(TransportSet.of(Transport.BUS, Transport.TRAIN), TransportSet.of(List.of(Transport.TRAIN, Transport.BUS)));
+        assertSame(TransportSet.all(), TransportSet.of(Transport.values()));
+        assertEquals(List.of(Transport.TRAIN, Transport.BUS), TransportSet.of(Transport.BUS, Transport.TRAIN).toList());
+        assertTrue(TransportSet.fromMask(0).isEmpty());
+
+        Vertex<Stop> s1 = graph.insertVertex(new Stop("S001", "Stop1", 2.0f, -2.5f));
+        Vertex<Stop> s2 = graph.insertVertex(new Stop("S002", "Stop2", 3.0f, -5.5f));
+        Vertex<Stop> s3 = graph.insertVertex(new Stop("S003", "Stop3", 3.0f, -5.5f));
+        HashMap<Transport, Float> walkDistances = new HashMap<>();
+        walkDistances.put(Transport.WALK, 1.0f);
+        graph.insertEdge(s1, s2, new Route("S001", "S002", new HashMap<>(distances), new HashMap<>(durations), new HashMap<>(costs)));
+        graph.insertEdge(s2, s3, new Route("S002", "S003", walkDistances, new HashMap<>(), new HashMap<>()));
+
+        for(SearchMode searchMode : SearchMode.values()) {
+            assertTrue(graph.searchRoute(s1.element(), s3.element(), TransportSet.of(Transport.BUS), Criterion.DISTANCE, searchMode).pathTo(s3.element()).isEmpty());
+            assertEquals(2, graph.searchRoute(s1.element(), s3.element(), TransportSet.of(Transport.BUS, Transport.WALK), Criterion.DISTANCE, searchMode).pathTo(s3.element()).size());
+        }
+    }
+
+    @Test
+    void testMinimumWeightsFollowRouteEdits(){
+        Vertex<Stop> s1 = graph.insertVertex(new Stop("S001", "Stop1", 2.0f, -2.5f));
+        Vertex<Stop> s2 = graph.insertVertex(new Stop("S002", "Stop2", 3.0f, -5.5f));
+        HashMap<Transport, Float> routeDistances = new HashMap<>();
+        routeDistances.put(Transport.BUS, 1.0f);
+        routeDistances.put(Transport.WALK, 3.0f);
+        Route route = new Route("S001", "S002", routeDistances, new HashMap<>(), new HashMap<>());
+        graph.insertEdge(s1, s2, route);
+
+        TransportSet transports = TransportSet.of(Transport.BUS, Transport.WALK);
+        for(SearchMode searchMode : List.of(SearchMode.BELLMAN_FORD, SearchMode.DIJKSTRA, SearchMode.OVERLAY)) {
+            assertEquals(Transport.BUS, graph.searchRoute(s1.element(), s2.element(), transports, Criterion.DISTANCE, searchMode).pathTo(s2.element()).get(0).transportTaken());
+        }
+
+        route.disableTransport(Transport.BUS);
+        for(SearchMode searchMode : List.of(SearchMode.BELLMAN_FORD, SearchMode.DIJKSTRA, SearchMode.OVERLAY)) {
+            assertEquals(Transport.WALK, graph.searchRoute(s1.element(), s2.element(), transports, Criterion.DISTANCE, searchMode).pathTo(s2.element()).get(0).transportTaken());
+        }
+        assertEquals(3.0f, graph.Dijkstra(s1.element(), transports, Criterion.DISTANCE).get(s2.element()).costToArrive(), 0.0001f);
+
+        route.enableTransport(Transport.BUS, 1.0f, null, null);
+        assertEquals(1.0f, graph.Dijkstra(s1.element(), transports, Criterion.DISTANCE).get(s2.element()).costToArrive(), 0.0001f);
+    }
+
+    @Test
+    void testParallelQueriesWithDifferentStrategies() throws Exception {
+        Vertex<Stop> s1 = graph.insertVertex(new Stop("S001", "Stop1", 2.0f, -2.5f));
+        Vertex<Stop> s2 = graph.insertVertex(new Stop("S002", "Stop2", 3.0f, -5.5f));
+        Vertex<Stop> s3 = graph.insertVertex(new Stop("S003", "Stop3", 3.0f, -5.5f));
+        HashMap<Transport, Integer> slow = new HashMap<>();
+        slow.put(Transport.BUS, 10);
+        graph.insertEdge(s1, s3, new Route("S001", "S003", new HashMap<>(distances), slow, new HashMap<>(costs)));
+        HashMap<Transport, Float> far = new HashMap<>();
+        far.put(Transport.BUS, 2.0f);
+        graph.insertEdge(s1, s2, new Route("S001", "S002", far, new HashMap<>(durations), new HashMap<>(costs)));
+        graph.insertEdge(s2, s3, new Route("S002", "S003", new HashMap<>(far), new HashMap<>(durations), new HashMap<>(costs)));
+
+        TransportSet transports = TransportSet.of(Transport.BUS);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for(int i = 0; i < 200; i++) {
+                RouteStrategy strategy = i % 2 == 0 ? new DistanceRouteStrategy(SearchMode.BIDIRECTIONAL) : new DurationRouteStrategy(SearchMode.BIDIRECTIONAL);
+                results.add(executor.submit(() -> graph.calculateRoute(s1.element(), s3.element(), transports, strategy).size()));
+            }
+            for(int i = 0; i < results.size(); i++) {
+                assertEquals(i % 2 == 0 ? 1 : 2, results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, graph.calculateRoute(s1.element(), s3.element(), transports).size());
+    }
+
+    @Test
+    void testMatrixMatchesSingleSearches(){
+        List<Vertex<Stop>> vertices = new ArrayList<>();
+        for(int i = 0; i < 6; i++) {
+            vertices.add(graph.insertVertex(new Stop("S00" + i, "Stop" + i, i, -i)));
+        }
+        for(int i = 0; i < 4; i++) {
+            HashMap<Transport, Float> routeDistances = new HashMap<>();
+            routeDistances.put(Transport.BUS, 1.0f + i);
+            graph.insertEdge(vertices.get(i), vertices.get(i + 1), new Route("S00" + i, "S00" + (i + 1), routeDistances, new HashMap<>(), new HashMap<>()));
+        }
+
+        List<Stop> stops = vertices.stream().map(Vertex::element).toList();
+        TransportSet bus = TransportSet.of(Transport.BUS);
+        RouteMatrix matrix = graph.calculateMatrix(stops, stops.subList(0, 5), bus, Criterion.DISTANCE, true);
+        assertEquals(6, matrix.numSources());
+        assertEquals(5, matrix.numTargets());
+
+        for(int i = 0; i < stops.size(); i++) {
+            Map<Stop, TransportsMap.RouteInfo> expected = graph.Dijkstra(stops.get(i), bus, Criterion.DISTANCE);
+            for(int j = 0; j < 5; j++) {
+                assertEquals(expected.get(stops.get(j)).costToArrive(), matrix.getCost(i, j), 0.0001f);
+                assertEquals(graph.calculateRoute(stops.get(i), stops.get(j), bus, new DistanceRouteStrategy()), matrix.pathTo(i, j));
+            }
+        }
+        assertTrue(Float.isInfinite(matrix.getCost(5, 0)));
+        assertEquals(10.0f, matrix.getRow(0)[4], 0.0001f);
+        assertFalse(graph.calculateMatrix(stops.get(0), stops, bus, Criterion.DISTANCE, false).hasPaths());
+    }
+
+    @Test
+    void testSustainabilityPrefersFewerRoutes(){
+        Stop a = new Stop("S001", "Stop1", 2.0f, -2.5f);
+        Stop b = new Stop("S002", "Stop2", 3.0f, -5.5f);
+        Stop d = new Stop("S003", "Stop3", 4.0f, -8.5f);
+        Stop e = new Stop("S004", "Stop4", 5.0f, -8.5f);
+        Stop f = new Stop("S005", "Stop5", 6.0f, -8.5f);
+        for(Stop stop : new Stop[]{a, b, d, e, f}) {
+            graph.insertVertex(stop);
+        }
+        graph.insertEdge(a, d, busRoute("S001", "S003", 1.0f));
+        graph.insertEdge(a, b, busRoute("S001", "S002", 0.4f));
+        graph.insertEdge(b, d, busRoute("S002", "S003", 0.4f));
+        // Elsewhere in the network, sets the shift of the criterion to 1
+        graph.insertEdge(e, f, busRoute("S004", "S005", -1.0f));
+
+        // A -> B -> D costs 0.8, but with the shift it's 2.8 against 2 for the direct route
+        TransportSet bus = TransportSet.of(Transport.BUS);
+        assertEquals(1.0f, graph.getRoutingGraph().getShift(Criterion.SUSTAINABILITY), 0.0001f);
+        for(SearchMode mode : SearchMode.values()) {
+            List<TransportsMap.RouteInfo> route = graph.calculateRoute(a, d, bus, new SustainabilityRouteStrategy(mode));
+            assertEquals(1, route.size(), mode.toString());
+            assertEquals(1.0f, route.get(0).costToArrive(), 0.0001f, mode.toString());
+        }
+    }
+
+    private static Route busRoute(String start, String end, float cost) {
+        HashMap<Transport, Float> routeDistances = new HashMap<>();
+        HashMap<Transport, Float> routeCosts = new HashMap<>();
+        routeDistances.put(Transport.BUS, 1.0f);
+        routeCosts.put(Transport.BUS, cost);
+        return new Route(start, end, routeDistances, new HashMap<>(), routeCosts);
+    }
+
+    @Test
+    void testBellmanFordReturnsExactCosts(){
+        Stop s1 = new Stop("S001", "Stop1", 2.0f, -2.5f);
+        Stop s2 = new Stop("S002", "Stop2", 3.0f, -5.5f);
+        Stop s3 = new Stop("S003", "Stop3", 4.0f, -8.5f);
+        graph.insertVertex(s1);
+        graph.insertVertex(s2);
+        graph.insertVertex(s3);
+        HashMap<Transport, Float> busDistances = new HashMap<>();
+        busDistances.put(Transport.BUS, 1.0f);
+        graph.insertEdge(s1, s2, new Route("S001", "S002", busDistances, new HashMap<>(), new HashMap<>()));
+        graph.insertEdge(s2, s3, new Route("S002", "S003", busDistances, new HashMap<>(), new HashMap<>()));
+
+        TransportSet bus = TransportSet.of(Transport.BUS);
+        assertEquals(2.0f, graph.BellmanFord(s1, bus, Criterion.DISTANCE).get(s3).costToArrive(), 0.0001f);
+        for(SearchMode mode : SearchMode.values()) {
+            ShortestPathTree tree = graph.searchRoute(s1, s3, bus, Criterion.DISTANCE, mode);
+            assertEquals(2.0f, tree.getCost(tree.getGraph().getId(s3)), 0.0001f, mode.toString());
+        }
+    }
+
+    @Test
+    void testParallelBellmanFordMatchesSequential(){
+        List<Vertex<Stop>> vertices = new ArrayList<>();
+        for(int i = 0; i < 25; i++) {
+            vertices.add(graph.insertVertex(new Stop("S0" + i, "Stop" + i, i / 5, i % 5)));
+        }
+        Random random = new Random(3);
+        for(int i = 0; i < 25; i++) {
+            for(int next : new int[]{i + 1, i + 5}) {
+                if(next >= 25 || (next == i + 1 && next % 5 == 0)) continue;
+                HashMap<Transport, Float> routeDistances = new HashMap<>();
+                routeDistances.put(Transport.BUS, 1.0f + random.nextInt(9));
+                graph.insertEdge(vertices.get(i), vertices.get(next), new Route("S0" + i, "S0" + next, routeDistances, new HashMap<>(), new HashMap<>()));
+            }
+        }
+
+        RoutingGraph routingGraph = graph.getRoutingGraph();
+        TransportSet bus = TransportSet.of(Transport.BUS);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ShortestPathTree sequential = BellmanFord.search(routingGraph, 0, bus, Criterion.DISTANCE, null);
+            ShortestPathTree parallel = BellmanFord.search(routingGraph, 0, bus, Criterion.DISTANCE, pool);
+            for(int v = 0; v < routingGraph.numStops(); v++) {
+                assertEquals(sequential.getCost(v), parallel.getCost(v), 0.0001f);
+            }
+            // The search ends once a pass changes nothing, long before the 24 passes of the worst case
+            assertTrue(sequential.getScannedStops() < 24 * routingGraph.numStops());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testDeltaSteppingMatchesDijkstra(){
+        List<Vertex<Stop>> vertices = new ArrayList<>();
+        for(int i = 0; i < 25; i++) {
+            vertices.add(graph.insertVertex(new Stop("S0" + i, "Stop" + i, i / 5, i % 5)));
+        }
+        Random random = new Random(5);
+        for(int i = 0; i < 25; i++) {
+            for(int next : new int[]{i + 1, i + 5}) {
+                if(next >= 25 || (next == i + 1 && next % 5 == 0)) continue;
+                HashMap<Transport, Float> routeDistances = new HashMap<>();
+                HashMap<Transport, Float> routeCosts = new HashMap<>();
+                routeDistances.put(Transport.BUS, 1.0f + random.nextInt(9));
+                routeCosts.put(Transport.BUS, random.nextInt(7) - 3.0f);
+                graph.insertEdge(vertices.get(i), vertices.get(next), new Route("S0" + i, "S0" + next, routeDistances, new HashMap<>(), routeCosts));
+            }
+        }
+
+        RoutingGraph routingGraph = graph.getRoutingGraph();
+        TransportSet bus = TransportSet.of(Transport.BUS);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for(Criterion criterion : new Criterion[]{Criterion.DISTANCE, Criterion.SUSTAINABILITY}) {
+                ShortestPathTree expected = Dijkstra.search(routingGraph, 0, bus, criterion);
+                float shift = routingGraph.getShift(criterion);
+                float delta = DeltaStepping.chooseDelta(routingGraph, bus, criterion);
+                for(float width : new float[]{1e-6f, delta / 4, delta, delta * 8}) {
+                    ShortestPathTree tree = DeltaStepping.search(routingGraph, 0, bus, criterion, width, pool);
+                    // Ties may be broken by another path, so the shifted cost is compared
+                    for(int v = 0; v < routingGraph.numStops(); v++) {
+                        assertEquals(expected.getCost(v) + shift * expected.pathTo(v).size(),
+                                tree.getCost(v) + shift * tree.pathTo(v).size(), 0.0001f);
+                    }
+                }
+            }
+            assertThrows(IllegalArgumentException.class, () -> DeltaStepping.search(routingGraph, 0, bus, Criterion.DISTANCE, 0, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     @Test
     void testToggleRouteStatus(){
         Vertex<Stop> s1 = graph.insertVertex(new Stop("S001", "Stop1", 2.0f, -2.5f));